@@ -0,0 +1,55 @@
+package hu.plantplanet.config;
+
+import hu.plantplanet.service.CatalogVersion;
+import hu.plantplanet.service.PlantExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+// Conditional GET for reference data: the ETag is the catalog version, so a matching
+// If-None-Match is answered with 304 before the controller (and the database) is reached
+@Component
+public class CatalogCacheInterceptor implements HandlerInterceptor {
+
+    private static final String EXPORT_PATH = "/plants/export";
+
+    private final CatalogVersion catalogVersion;
+    private final CacheControl cacheControl;
+
+    public CatalogCacheInterceptor(CatalogVersion catalogVersion,
+                                   @Value("${catalog.cache.max-age-seconds:0}") long maxAgeSeconds) {
+        this.catalogVersion = catalogVersion;
+        this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    }
+
+    public String currentEtag() {
+        return "\"catalog-" + catalogVersion.current() + "\"";
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        String etag = currentEtag();
+        // The export is sent gzip-encoded or not depending on the request, so the two bodies need
+        // their own ETags, and caches must key on Accept-Encoding, for a 304 as well
+        if (EXPORT_PATH.equals(request.getServletPath())) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (PlantExportService.wantsGzip(Boolean.parseBoolean(request.getParameter("gzip")),
+                    request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                etag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+            }
+        }
+        // Sets the ETag header, and the 304 status when the client's copy is current
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+}
@@ -42,7 +42,7 @@ public class SecurityConfiguration {
             "/user/login","/user/register",
             "/swagger-ui/**", "/swagger-resources/**",
             "/v2/api-docs", "/v3/api-docs", "/v3/api-docs/**",
-            "/plants", "/plant/**",
+            "/plants", "/plants/**", "/plant/**",
             "/cart/view/**", "/cart/**", "/cart/add/**",
             "/comments", "/comments/**",
             "/email", "/email/**",
@@ -0,0 +1,50 @@
+package hu.plantplanet.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Map;
+
+// Counts the SQL statements Hibernate prepares while a request is handled and logs the count,
+// for comparing an endpoint before and after a fetch plan change. Only active with
+// jpa.statement-count.enabled=true. Statements run by the JWT filter before the handler (the user
+// lookup) are not counted; scheduled jobs show up in Hibernate's per-session statistics instead.
+@Component
+@ConditionalOnProperty(name = "jpa.statement-count.enabled", havingValue = "true")
+public class SqlStatementCounter implements StatementInspector, HandlerInterceptor, HibernatePropertiesCustomizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementCounter.class);
+
+    private final ThreadLocal<int[]> statements = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        statements.get()[0]++;
+        return sql;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        statements.get()[0] = 0;
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        logger.info("{} {} ran {} SQL statements", request.getMethod(), request.getRequestURI(), statements.get()[0]);
+        statements.remove();
+    }
+}
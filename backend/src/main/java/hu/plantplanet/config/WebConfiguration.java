@@ -0,0 +1,29 @@
+package hu.plantplanet.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final CatalogCacheInterceptor catalogCacheInterceptor;
+    private final ObjectProvider<SqlStatementCounter> sqlStatementCounter;
+
+    public WebConfiguration(CatalogCacheInterceptor catalogCacheInterceptor,
+                            ObjectProvider<SqlStatementCounter> sqlStatementCounter) {
+        this.catalogCacheInterceptor = catalogCacheInterceptor;
+        this.sqlStatementCounter = sqlStatementCounter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(catalogCacheInterceptor)
+                .addPathPatterns("/plants", "/plants/**", "/plant/**", "/pots",
+                        "/subscriptions/plans", "/subscriptions/plans/**")
+                .excludePathPatterns("/plants/random");
+        // Present only with jpa.statement-count.enabled=true
+        sqlStatementCounter.ifAvailable(registry::addInterceptor);
+    }
+}
@@ -1,6 +1,9 @@
 package hu.plantplanet.controller;
 
-import hu.plantplanet.model.Cart;
+import hu.plantplanet.dto.cart.CartBatchRequest;
+import hu.plantplanet.dto.cart.CartBatchResponse;
+import hu.plantplanet.dto.cart.CartLineDTO;
+import hu.plantplanet.exception.CartConflictException;
 import hu.plantplanet.service.CartService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +34,12 @@ public class cartController {
         return ResponseEntity.ok("Item added/updated in the cart");
     }
 
+    // Several add/update/remove operations applied in order in one transaction
+    @PostMapping("/batch")
+    public ResponseEntity<CartBatchResponse> applyBatch(@RequestBody CartBatchRequest request) {
+        return ResponseEntity.ok(cartService.applyBatch(request.getUserId(), request.getOperations()));
+    }
+
     @DeleteMapping("/remove/{cartItemId}")
     public ResponseEntity<String> removeCartItem(@PathVariable Integer cartItemId) {
         cartService.removeCartItem(cartItemId);
@@ -38,8 +47,8 @@ public class cartController {
     }
 
     @GetMapping("/view")
-    public ResponseEntity<List<Cart>> getCartItems(@RequestParam Integer userId) {
-        List<Cart> cartItems = cartService.getCartItems(userId);
+    public ResponseEntity<List<CartLineDTO>> getCartItems(@RequestParam Integer userId) {
+        List<CartLineDTO> cartItems = cartService.getCartView(userId);
         return ResponseEntity.ok(cartItems);
     }
 
@@ -53,10 +62,13 @@ public class cartController {
     public ResponseEntity<String> updateCartItem(
             @RequestParam Integer userId,
             @RequestParam Integer plantId,
-            @RequestParam int amount) {
+            @RequestParam int amount,
+            @RequestParam(required = false) Long version) {
         try {
-            cartService.updateCartItem(userId, plantId, amount);
+            cartService.updateCartItem(userId, plantId, amount, version);
             return ResponseEntity.ok("Cart item updated successfully");
+        } catch (CartConflictException e) {
+            return ResponseEntity.status(409).body("Error updating cart item: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(404).body("Error updating cart item: " + e.getMessage());
         }
@@ -0,0 +1,31 @@
+package hu.plantplanet.controller;
+
+import hu.plantplanet.service.CatalogVersion;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/catalog")
+@Tag(name="Catalog")
+public class catalogController {
+
+    private final CatalogVersion catalogVersion;
+
+    public catalogController(CatalogVersion catalogVersion) {
+        this.catalogVersion = catalogVersion;
+    }
+
+    // Needed after catalog rows are changed directly in the database (e.g. by a migration)
+    @PostMapping("/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Invalidate cached catalog data and ETags")
+    public ResponseEntity<Long> refresh() {
+        catalogVersion.bump();
+        return ResponseEntity.ok(catalogVersion.current());
+    }
+}
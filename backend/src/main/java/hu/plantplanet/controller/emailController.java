@@ -16,7 +16,7 @@ public class emailController {
     @GetMapping("/send")
     public String sendTestEmail(@RequestParam String to) {
         emailService.sendReminder(to, "Test Plant");
-        return "Test email sent to " + to;
+        return "Test email queued for " + to;
     }
 
 }
@@ -1,11 +1,18 @@
 package hu.plantplanet.controller;
 
+import hu.plantplanet.auth.PermissionCollector;
+import hu.plantplanet.dto.order.CheckoutRequest;
 import hu.plantplanet.dto.order.OrderDTO;
-import hu.plantplanet.model.Order;
+import hu.plantplanet.dto.order.OrderPageResponse;
+import hu.plantplanet.service.OrderIdempotencyService;
 import hu.plantplanet.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -13,14 +20,52 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name="Orders")
 public class orderController {
     private final OrderService orderService;
+    private final OrderIdempotencyService orderIdempotencyService;
 
-    public orderController(OrderService orderService) {
+    public orderController(OrderService orderService, OrderIdempotencyService orderIdempotencyService) {
         this.orderService = orderService;
+        this.orderIdempotencyService = orderIdempotencyService;
     }
 
+    // A retry carrying the same Idempotency-Key gets the first response back instead of a second order
     @PostMapping
-    public ResponseEntity<Order> placeOrder(@Valid @RequestBody OrderDTO orderDto) {
-        Order savedOrder = orderService.placeOrder(orderDto);
-        return ResponseEntity.ok(savedOrder);
+    public ResponseEntity<byte[]> placeOrder(@Valid @RequestBody OrderDTO orderDto,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                             @AuthenticationPrincipal PermissionCollector permissionCollector) {
+        // Open to guests; only a logged in user's order is added to their history
+        Integer userId = permissionCollector != null ? permissionCollector.getUser().getId() : null;
+        byte[] savedOrder = orderIdempotencyService.execute("orders:" + userId, idempotencyKey, orderDto,
+                () -> orderService.placeOrder(orderDto, userId));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(savedOrder);
+    }
+
+    // Checks out the logged in user's own cart; keys are scoped per user, so two users can never
+    // replay each other's order
+    @PostMapping("/checkout")
+    public ResponseEntity<byte[]> checkout(@Valid @RequestBody CheckoutRequest request,
+                                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                           @AuthenticationPrincipal PermissionCollector permissionCollector) {
+        Integer userId = permissionCollector.getUser().getId();
+        byte[] savedOrder = orderIdempotencyService.execute("checkout:" + userId, idempotencyKey, request,
+                () -> orderService.checkout(userId, request));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(savedOrder);
+    }
+
+    @GetMapping("/my")
+    @Operation(summary = "Get the logged in user's orders, newest first, one page per cursor")
+    public ResponseEntity<OrderPageResponse> getMyOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal PermissionCollector permissionCollector) {
+        return ResponseEntity.ok(orderService.getOrdersByUser(permissionCollector.getUser().getId(), cursor, size));
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get all orders, newest first, one page per cursor")
+    public ResponseEntity<OrderPageResponse> getOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getOrders(cursor, size));
     }
 }
\ No newline at end of file
@@ -1,17 +1,39 @@
 package hu.plantplanet.controller;
 
+import hu.plantplanet.dto.image.ImageDTO;
+import hu.plantplanet.dto.plant.PlantBatchResponse;
+import hu.plantplanet.dto.plant.PlantDTO;
+import hu.plantplanet.dto.plant.PlantPageResponse;
+import hu.plantplanet.dto.plant.PlantQueryRequest;
+import hu.plantplanet.dto.plant.PlantSummaryDTO;
 import hu.plantplanet.model.Plants;
+import hu.plantplanet.model.CareProfile;
+import hu.plantplanet.service.CareProfileService;
+import hu.plantplanet.service.ImageService;
+import hu.plantplanet.service.PlantExportService;
+import hu.plantplanet.service.PlantSamplerService;
+import hu.plantplanet.service.PlantSearchService;
 import hu.plantplanet.service.PlantsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @Tag(name="Plants")
@@ -20,6 +42,21 @@ public class plantController {
     @Autowired
     private PlantsService plantsService;
 
+    @Autowired
+    private PlantSearchService plantSearchService;
+
+    @Autowired
+    private PlantSamplerService plantSamplerService;
+
+    @Autowired
+    private CareProfileService careProfileService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private PlantExportService plantExportService;
+
     // Endpoint to get all plants
     @GetMapping("/plants")
     @Operation(summary = "List all plants")
@@ -27,6 +64,112 @@ public class plantController {
         return plantsService.getAllPlants();
     }
 
+    // Endpoint to get the lightweight listing of all plants (id, name, thumbnail, price)
+    @GetMapping("/plants/summary")
+    @Operation(summary = "List plant summaries for the catalog grid")
+    public ResponseEntity<byte[]> getPlantSummaries() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(plantsService.getPlantSummariesJson());
+    }
+
+    // Endpoint to search, filter and page through the catalog
+    @GetMapping("/plants/query")
+    @Operation(summary = "Query plants with filters, sorting and cursor based paging")
+    public PlantPageResponse<Plants> queryPlants(@ModelAttribute PlantQueryRequest request) {
+        return plantsService.queryPlants(request);
+    }
+
+    // Endpoint for ranked full-text search over names and descriptions
+    @GetMapping("/plants/search")
+    @Operation(summary = "Search plants by name and description")
+    public List<PlantSummaryDTO> searchPlants(@RequestParam String q,
+                                              @RequestParam(required = false) Integer limit) {
+        return plantSearchService.search(q, limit);
+    }
+
+    // Endpoint for autocomplete while the user is typing
+    @GetMapping("/plants/suggest")
+    @Operation(summary = "Suggest plant names for a partial query")
+    public List<PlantDTO> suggestPlants(@RequestParam String q,
+                                        @RequestParam(required = false) Integer limit) {
+        return plantSearchService.suggest(q, limit);
+    }
+
+    // Endpoint to filter plants by care needs using the parsed care profiles
+    @GetMapping("/plants/care")
+    @Operation(summary = "Find plants by light, water, humidity and temperature needs")
+    public List<PlantSummaryDTO> findPlantsByCare(@RequestParam(required = false) List<String> light,
+                                                  @RequestParam(required = false) List<String> water,
+                                                  @RequestParam(required = false) List<String> humidity,
+                                                  @RequestParam(required = false) Integer minTemp,
+                                                  @RequestParam(required = false) Integer maxTemp) {
+        return careProfileService.findMatching(light, water, humidity, minTemp, maxTemp);
+    }
+
+    // Endpoint to get the parsed care profile of a plant
+    @GetMapping("/plant/{id}/care")
+    @Operation(summary = "Get the structured care profile of a plant")
+    public ResponseEntity<CareProfile> getCareProfile(@PathVariable int id) {
+        return careProfileService.getProfile(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Endpoint to get the images of a plant with their resized variants
+    @GetMapping("/plant/{id}/images")
+    @Operation(summary = "Get the images of a plant with thumbnail and medium variants")
+    public ResponseEntity<List<ImageDTO>> getPlantImages(@PathVariable int id) {
+        return plantsService.getPlantById(id)
+                .map(plant -> ResponseEntity.ok(imageService.decode(plant.getImages())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Endpoints to get many plants at once (POST for id lists too long for a URL)
+    @GetMapping("/plants/batch")
+    @Operation(summary = "Get several plants by ID")
+    public PlantBatchResponse getPlantsByIds(@RequestParam List<Integer> ids) {
+        return plantsService.getPlantsByIds(ids);
+    }
+
+    @PostMapping("/plants/batch")
+    @Operation(summary = "Get several plants by ID from a JSON array of IDs")
+    public PlantBatchResponse postPlantsByIds(@RequestBody List<Integer> ids) {
+        return plantsService.getPlantsByIds(ids);
+    }
+
+    // Endpoint to export the whole catalog as NDJSON, streamed row by row
+    @GetMapping("/plants/export")
+    @Operation(summary = "Export all plants as newline-delimited JSON (gzip if requested)")
+    public ResponseEntity<StreamingResponseBody> exportPlants(
+            @RequestParam(required = false, defaultValue = "false") boolean gzip,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean compress = PlantExportService.wantsGzip(gzip, acceptEncoding);
+        StreamingResponseBody body = out -> {
+            if (compress) {
+                try (OutputStream zipped = new GZIPOutputStream(out, 64 * 1024)) {
+                    plantExportService.exportNdjson(zipped);
+                }
+            } else {
+                plantExportService.exportNdjson(out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"plants.ndjson\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compress) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    // Endpoint to get a few random plants, e.g. for "you may also like"
+    @GetMapping("/plants/random")
+    @Operation(summary = "Get random plants")
+    public List<Plants> getRandomPlants(@RequestParam(defaultValue = "3") int count,
+                                        @RequestParam(required = false) List<Integer> exclude) {
+        return plantSamplerService.randomPlants(count, exclude);
+    }
+
     // Endpoint to get a specific plant by ID
     @GetMapping("/plant/{id}")
     @Operation(summary = "List the details of the selected plant")
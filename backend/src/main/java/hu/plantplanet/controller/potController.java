@@ -1,7 +1,7 @@
 package hu.plantplanet.controller;
 
 import hu.plantplanet.model.Pots;
-import hu.plantplanet.repository.PotRepository;
+import hu.plantplanet.service.CatalogSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,11 +12,11 @@ import java.util.List;
 public class potController {
 
     @Autowired
-    private PotRepository potRepository;
+    private CatalogSnapshot catalogSnapshot;
 
     @GetMapping
     public List<Pots> getPots() {
-        return potRepository.findAll();
+        return catalogSnapshot.pots();
     }
 }
 
@@ -0,0 +1,37 @@
+package hu.plantplanet.controller;
+
+import hu.plantplanet.dto.stats.SalesStatsResponse;
+import hu.plantplanet.service.SalesRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/stats")
+@Tag(name="Stats")
+public class statsController {
+
+    private final SalesRollupService salesRollupService;
+
+    public statsController(SalesRollupService salesRollupService) {
+        this.salesRollupService = salesRollupService;
+    }
+
+    // Served from the rollup tables, which trail new orders by up to sales.rollup.interval-ms
+    @GetMapping("/sales")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Revenue per day and units sold per plant, pot and subscription plan")
+    public ResponseEntity<SalesStatsResponse> getSalesStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesRollupService.getSalesStats(from, to));
+    }
+}
@@ -1,10 +1,12 @@
 package hu.plantplanet.controller;
 
 import hu.plantplanet.auth.PermissionCollector;
+import hu.plantplanet.dto.image.ImageDTO;
 import hu.plantplanet.dto.subsciption.SubscribeRequest;
 import hu.plantplanet.model.SubscriptionPlan;
 import hu.plantplanet.model.UserSubscription;
 import hu.plantplanet.model.Users;
+import hu.plantplanet.service.ImageService;
 import hu.plantplanet.service.SubscriptionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,6 +26,9 @@ public class subscriptionController {
     @Autowired
     private SubscriptionService subscriptionService;
 
+    @Autowired
+    private ImageService imageService;
+
     @Operation(summary = "Get all subscription plans")
     @GetMapping("/plans")
     public List<SubscriptionPlan> getPlans() {
@@ -64,4 +69,10 @@ public class subscriptionController {
         SubscriptionPlan plan = subscriptionService.getPlanById(id);
         return ResponseEntity.ok(plan);
     }
+
+    @Operation(summary = "Get the images of a subscription plan with thumbnail and medium variants")
+    @GetMapping("/plans/{id}/images")
+    public List<ImageDTO> getPlanImages(@PathVariable Long id) {
+        return imageService.decode(subscriptionService.getPlanById(id).getImages());
+    }
 }
@@ -0,0 +1,11 @@
+package hu.plantplanet.dto.cart;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CartBatchRequest {
+    private Integer userId;
+    private List<CartOperation> operations;
+}
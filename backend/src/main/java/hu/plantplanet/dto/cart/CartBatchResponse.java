@@ -0,0 +1,14 @@
+package hu.plantplanet.dto.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class CartBatchResponse {
+    private List<CartLineDTO> items;   // the cart after all operations were applied
+    private BigDecimal total;
+}
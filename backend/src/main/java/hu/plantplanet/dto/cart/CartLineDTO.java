@@ -0,0 +1,24 @@
+package hu.plantplanet.dto.cart;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Flat cart line for the cart view
+@Data
+public class CartLineDTO {
+    private Integer id;
+    private Integer plantId;
+    private Integer potId;
+    private Long subscriptionPlanId;
+    private String name;           // plant or subscription plan name
+    private String image;          // thumbnail of the plant or plan
+    private BigDecimal itemPrice;  // plant or plan price on its own
+    private String potName;
+    private String potImage;
+    private BigDecimal potPrice;
+    private BigDecimal price;      // unit price of the line, plant and pot together
+    private int amount;
+    private boolean subscription;
+    private long version;          // send back with updates to detect concurrent changes
+}
@@ -0,0 +1,22 @@
+package hu.plantplanet.dto.cart;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+// One step of a batched cart mutation, mirroring /cart/add, /cart/update and /cart/remove
+@Data
+public class CartOperation {
+    public enum Type {
+        @JsonProperty("add") ADD,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("remove") REMOVE
+    }
+
+    private Type op;
+    private Integer itemId;       // plant or subscription plan id, for add
+    private Integer amount;       // added quantity for add, new quantity for update
+    private Integer cartItemId;   // target line for update and remove
+    private Boolean isSubscription; // boxed so the JSON property keeps the isSubscription name
+    private Integer potId;
+    private Long version;         // optional for update: only apply if the line still has this version
+}
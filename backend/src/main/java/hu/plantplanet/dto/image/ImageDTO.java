@@ -0,0 +1,19 @@
+package hu.plantplanet.dto.image;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One catalog image with the URLs of its resized variants
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImageDTO {
+    private String full;
+    private String medium;
+    private String thumb;
+    private Integer width;  // of the original, when known
+    private Integer height;
+}
@@ -0,0 +1,29 @@
+package hu.plantplanet.dto.order;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+// Shipping and payment details for a checkout; items and prices come from the logged in user's cart
+@Data
+public class CheckoutRequest {
+    @NotEmpty(message = "Name is required")
+    private String name;
+
+    @NotEmpty(message = "Email is required")
+    private String email;
+
+    @NotEmpty(message = "Address is required")
+    private String address;
+
+    @NotEmpty(message = "City is required")
+    private String city;
+
+    @NotEmpty(message = "Zipcode is required")
+    private String zipcode;
+
+    @NotEmpty(message = "Phone number is required")
+    private String phoneNumber;
+
+    @NotEmpty(message = "Payment method is required")
+    private String paymentMethod;
+}
@@ -17,6 +17,8 @@ import java.util.stream.Collectors;
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderDTO {
+    private Long orderId;
+
     @NotEmpty(message = "Name is required")
     private String name;
 
@@ -48,6 +50,7 @@ public class OrderDTO {
 
     public static OrderDTO fromOrder(Order order) {
         OrderDTO dto = new OrderDTO();
+        dto.setOrderId(order.getOrderId());
         dto.setName(order.getName());
         dto.setEmail(order.getEmail());
         dto.setAddress(order.getAddress());
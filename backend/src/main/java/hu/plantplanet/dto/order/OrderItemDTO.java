@@ -25,7 +25,7 @@ public class OrderItemDTO {
 
     public static OrderItemDTO fromOrderItem(OrderItem item) {
         OrderItemDTO dto = new OrderItemDTO();
-        dto.setUserId(Long.valueOf(item.getUser() != null ? item.getUser().getId() : null));
+        dto.setUserId(item.getUser() != null ? Long.valueOf(item.getUser().getId()) : null);
         dto.setSubscription(item.isSubscription());
         dto.setAmount(item.getAmount());
         dto.setPrice(item.getPrice());
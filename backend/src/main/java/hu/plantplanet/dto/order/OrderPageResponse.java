@@ -0,0 +1,13 @@
+package hu.plantplanet.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class OrderPageResponse {
+    private List<OrderDTO> items;
+    private String nextCursor; // null when this is the last page
+}
@@ -0,0 +1,14 @@
+package hu.plantplanet.dto.plant;
+
+import hu.plantplanet.model.Plants;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class PlantBatchResponse {
+    private List<Plants> plants;   // in request order, without duplicates
+    private List<Integer> missing; // requested ids that do not exist
+}
@@ -0,0 +1,13 @@
+package hu.plantplanet.dto.plant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class PlantPageResponse<T> {
+    private List<T> items;
+    private String nextCursor; // null when this is the last page
+}
@@ -0,0 +1,21 @@
+package hu.plantplanet.dto.plant;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class PlantQueryRequest {
+    private String q;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private List<String> light;
+    private List<String> water;
+    private List<String> humidity;
+    private Integer minTemp;
+    private Integer maxTemp;
+    private String sort;
+    private String cursor;
+    private Integer size;
+}
@@ -0,0 +1,31 @@
+package hu.plantplanet.dto.plant;
+
+import java.util.Arrays;
+
+// Sort keys accepted by the catalog query, named after the front end's sort options
+public enum PlantSort {
+    FEATURED("featured"),
+    PRICE_LOW_TO_HIGH("priceLowToHigh"),
+    PRICE_HIGH_TO_LOW("priceHighToLow"),
+    NAME("az");
+
+    private final String key;
+
+    PlantSort(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static PlantSort fromKey(String key) {
+        if (key == null || key.isBlank()) {
+            return FEATURED;
+        }
+        return Arrays.stream(values())
+                .filter(sort -> sort.key.equalsIgnoreCase(key) || sort.name().equalsIgnoreCase(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown sort key: " + key));
+    }
+}
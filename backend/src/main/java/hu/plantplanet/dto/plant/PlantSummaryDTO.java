@@ -0,0 +1,18 @@
+package hu.plantplanet.dto.plant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// What the listing grid needs per plant: no description, no care fields
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlantSummaryDTO {
+    private Integer id;
+    private String name;
+    private String image;
+    private BigDecimal price;
+}
@@ -0,0 +1,15 @@
+package hu.plantplanet.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Units of one plant, pot or subscription plan sold in the requested range
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemSalesDTO {
+    private Long id;
+    private String name;
+    private long units;
+}
@@ -0,0 +1,21 @@
+package hu.plantplanet.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SalesStatsResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private int orders;
+    private BigDecimal revenue;
+    private List<DailySalesDTO> days;  // only days with orders
+    private List<ItemSalesDTO> plants; // best sellers first
+    private List<ItemSalesDTO> pots;
+    private List<ItemSalesDTO> plans;
+}
@@ -0,0 +1,7 @@
+package hu.plantplanet.exception;
+
+public class CartConflictException extends RuntimeException {
+    public CartConflictException(String message) {
+        super(message);
+    }
+}
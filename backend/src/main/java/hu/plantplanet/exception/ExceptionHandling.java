@@ -50,6 +50,16 @@ public class ExceptionHandling implements ErrorController {
         return createHttpResponse(BAD_REQUEST, ex.getMessage());
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ExceptionResponse> illegalArgumentException(IllegalArgumentException exception) {
+        return createHttpResponse(BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(CartConflictException.class)
+    public ResponseEntity<ExceptionResponse> cartConflictException(CartConflictException exception) {
+        return createHttpResponse(CONFLICT, exception.getMessage());
+    }
+
     @ExceptionHandler(EmailAlreadyExistsException.class)
     public ResponseEntity<ExceptionResponse> handleEmailAlreadyExists(EmailAlreadyExistsException ex) {
         return createHttpResponse(CONFLICT, EMAIL_ALREADY_EXISTS);
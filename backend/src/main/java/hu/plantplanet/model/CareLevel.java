@@ -0,0 +1,20 @@
+package hu.plantplanet.model;
+
+import java.util.Locale;
+
+// Parsed form of the Low/Medium/High strings stored in Plants.light, water and humidity
+public enum CareLevel {
+    LOW, MEDIUM, HIGH, UNKNOWN;
+
+    public static CareLevel parse(String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "low" -> LOW;
+            case "medium" -> MEDIUM;
+            case "high" -> HIGH;
+            default -> UNKNOWN;
+        };
+    }
+}
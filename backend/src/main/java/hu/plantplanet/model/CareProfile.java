@@ -0,0 +1,53 @@
+package hu.plantplanet.model;
+
+import java.time.Period;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Structured care attributes of a plant, parsed once from the free-text columns
+public record CareProfile(Integer plantId,
+                          CareLevel light,
+                          CareLevel water,
+                          CareLevel humidity,
+                          Integer minTemperature,
+                          Integer maxTemperature,
+                          Period repotting) {
+
+    private static final Pattern COUNT_AND_UNIT = Pattern.compile("(\\d+)\\s*(year|month|week)s?");
+
+    public static CareProfile fromPlant(Plants plant) {
+        return new CareProfile(
+                plant.getId(),
+                CareLevel.parse(plant.getLight()),
+                CareLevel.parse(plant.getWater()),
+                CareLevel.parse(plant.getHumidity()),
+                plant.getTemperatureMin(),
+                plant.getTemperatureMax(),
+                parseRepotting(plant.getRePotting()));
+    }
+
+    // "2 Years", "6 Months", "Yearly", "Monthly"; null when there is no fixed interval (e.g. "Rarely")
+    public static Period parseRepotting(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        Matcher matcher = COUNT_AND_UNIT.matcher(text);
+        if (matcher.find()) {
+            int count = Integer.parseInt(matcher.group(1));
+            return switch (matcher.group(2)) {
+                case "year" -> Period.ofYears(count);
+                case "month" -> Period.ofMonths(count);
+                default -> Period.ofWeeks(count);
+            };
+        }
+        return switch (text) {
+            case "yearly", "annually" -> Period.ofYears(1);
+            case "bi-annually" -> Period.ofMonths(6);
+            case "monthly" -> Period.ofMonths(1);
+            case "weekly" -> Period.ofWeeks(1);
+            default -> null;
+        };
+    }
+}
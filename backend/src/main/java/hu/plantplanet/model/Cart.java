@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Setter
 @Getter
@@ -15,15 +16,15 @@ public class Cart {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private Users user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "plant_id", nullable = true)
     private Plants plant;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pot_id", nullable = true)
     private Pots pot;
 
@@ -31,7 +32,21 @@ public class Cart {
     private int amount;
     private boolean isSubscription;
 
-    @ManyToOne
+    // Bumped by every write to the line, including the native upserts in CartRepository
+    @Version
+    private long version;
+
+    // Set on every write, the native statements in CartRepository set it to CURRENT_TIMESTAMP themselves
+    @Column(name = "last_modified")
+    private LocalDateTime lastModified;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "subscription_plan_id", nullable = true)
     private SubscriptionPlan subscriptionPlan;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = LocalDateTime.now();
+    }
 }
\ No newline at end of file
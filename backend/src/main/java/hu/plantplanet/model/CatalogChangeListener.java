@@ -0,0 +1,18 @@
+package hu.plantplanet.model;
+
+import hu.plantplanet.service.CatalogVersion;
+import hu.plantplanet.service.SpringContext;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+// Attached to the catalog entities so any write through JPA invalidates catalog caches
+public class CatalogChangeListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCatalogChange(Object entity) {
+        SpringContext.getBean(CatalogVersion.class).bump();
+    }
+}
@@ -15,8 +15,10 @@ import java.util.List;
 @Entity
 @Table(name = "orders")
 public class Order {
+    // Pooled sequence ids (see alter_sequences_orders_pooled.sql) keep JDBC insert batching possible
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_order_id_seq", allocationSize = 50)
     private Long orderId;
 
     private String name;
@@ -28,7 +30,13 @@ public class Order {
     private String paymentMethod;
     private BigDecimal totalPrice;
 
-    @Column(name = "order_date")
+    // The logged in user who placed the order; order history is keyed on it, never on the
+    // contact email typed in at checkout
+    @Column(name = "user_id")
+    private Integer userId;
+
+    // Partition key of orders and order_item, so it must be set before the insert
+    @Column(name = "order_date", nullable = false)
     private LocalDateTime orderDate = LocalDateTime.now();
 
     @JsonManagedReference
@@ -48,5 +56,11 @@ public class Order {
         this.orderItems = orderItems;
     }
 
+    @PrePersist
+    void defaultOrderDate() {
+        if (orderDate == null) {
+            orderDate = LocalDateTime.now();
+        }
+    }
 }
 
@@ -1,20 +1,26 @@
 package hu.plantplanet.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Plants {
 
+    private static final Pattern TEMPERATURE_RANGE = Pattern.compile("(-?\\d+)\\s*°C\\s*to\\s*(-?\\d+)\\s*°C");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -55,5 +61,27 @@ public class Plants {
 
     @Column(length = 50)
     private String propagation;
+
+    // Numeric bounds parsed from "temperature" so range filters can run in SQL
+    @JsonIgnore
+    @Column(name = "temperature_min")
+    private Integer temperatureMin;
+
+    @JsonIgnore
+    @Column(name = "temperature_max")
+    private Integer temperatureMax;
+
+    @PrePersist
+    @PreUpdate
+    void deriveTemperatureRange() {
+        Matcher matcher = temperature != null ? TEMPERATURE_RANGE.matcher(temperature) : null;
+        if (matcher != null && matcher.find()) {
+            temperatureMin = Integer.parseInt(matcher.group(1));
+            temperatureMax = Integer.parseInt(matcher.group(2));
+        } else {
+            temperatureMin = null;
+            temperatureMax = null;
+        }
+    }
 }
 
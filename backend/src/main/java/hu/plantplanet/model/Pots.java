@@ -9,6 +9,7 @@ import java.math.BigDecimal;
 @Setter
 @Getter
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @Table(name = "pots")
 public class Pots {
 
@@ -6,6 +6,7 @@ import lombok.*;
 import java.math.BigDecimal;
 
 @Entity
+@EntityListeners(CatalogChangeListener.class)
 @Getter
 @Setter
 @Table(name = "subscription_plans")
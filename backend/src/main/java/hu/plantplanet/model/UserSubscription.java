@@ -9,16 +9,20 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Table(name = "user_subscriptions")
+@NamedEntityGraph(name = "UserSubscription.userAndPlan", attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("plan")
+})
 public class UserSubscription {
     public enum SubscriptionStatus { ACTIVE, PAUSED, CANCELLED }
 
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Users user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private SubscriptionPlan plan;
 
     private Integer intervalDays;
@@ -0,0 +1,15 @@
+package hu.plantplanet.repository;
+
+import java.math.BigDecimal;
+
+// Cart columns read for the cart view; names and images come from the catalog snapshot
+public interface CartLineView {
+    Integer getId();
+    Integer getPlantId();
+    Integer getPotId();
+    Long getSubscriptionPlanId();
+    BigDecimal getPrice();
+    int getAmount();
+    boolean getSubscription();
+    long getVersion();
+}
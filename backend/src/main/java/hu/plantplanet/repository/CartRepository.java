@@ -2,20 +2,105 @@ package hu.plantplanet.repository;
 
 import hu.plantplanet.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
-    List<Cart> findByUserId(Integer userId);
-    List<Cart> findByUserIdAndPlantId(Integer userId, Integer plantId);
-    Optional<Cart> findByIdAndUserId(Integer id, Integer userId);
-    Optional<Cart> findByUserIdAndSubscriptionPlanId(Integer userId, Long subscriptionPlanId);
-
+    // The user stays a lazy reference, the write-behind store only needs its id
     @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.plant LEFT JOIN FETCH c.subscriptionPlan LEFT JOIN FETCH c.pot WHERE c.user.id = :userId")
     List<Cart> findByUserIdWithDetails(@Param("userId") Integer userId);
+
+    @Query(nativeQuery = true, value =
+            "SELECT id, plant_id AS \"plantId\", pot_id AS \"potId\", subscription_plan_id AS \"subscriptionPlanId\", " +
+            "price, amount, is_subscription AS subscription, version FROM cart WHERE user_id = :userId ORDER BY id")
+    List<CartLineView> findLinesByUserId(@Param("userId") Integer userId);
+
+    // Cart lines locked until the checkout transaction ends, so they cannot change while being ordered
+    @Query(nativeQuery = true, value =
+            "SELECT id, plant_id AS \"plantId\", pot_id AS \"potId\", subscription_plan_id AS \"subscriptionPlanId\", " +
+            "price, amount, is_subscription AS subscription, version FROM cart WHERE user_id = :userId ORDER BY id FOR UPDATE")
+    List<CartLineView> findLinesByUserIdForUpdate(@Param("userId") Integer userId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM cart WHERE id IN (:ids)")
+    int deleteLines(@Param("ids") List<Integer> ids);
+
+    // Cart total computed in the database, without loading any entities (null for an empty cart)
+    @Query("SELECT SUM(c.price * c.amount) FROM Cart c WHERE c.user.id = :userId")
+    BigDecimal sumTotalByUserId(@Param("userId") Integer userId);
+
+    // Single-statement upserts relying on the unique indexes ux_cart_user_plant_pot / ux_cart_user_plan,
+    // shared with the JDBC batches in CartService
+    String UPSERT_PLANT_LINE =
+            "INSERT INTO cart (user_id, plant_id, pot_id, price, amount, is_subscription) " +
+            "VALUES (:userId, :plantId, :potId, :price, :amount, FALSE) " +
+            "ON CONFLICT (user_id, plant_id, COALESCE(pot_id, 0)) WHERE plant_id IS NOT NULL " +
+            "DO UPDATE SET amount = cart.amount + EXCLUDED.amount, price = EXCLUDED.price, version = cart.version + 1, " +
+            "last_modified = CURRENT_TIMESTAMP";
+    String UPSERT_PLAN_LINE =
+            "INSERT INTO cart (user_id, subscription_plan_id, price, amount, is_subscription) " +
+            "VALUES (:userId, :planId, :price, :amount, TRUE) " +
+            "ON CONFLICT (user_id, subscription_plan_id) WHERE subscription_plan_id IS NOT NULL " +
+            "DO UPDATE SET amount = cart.amount + EXCLUDED.amount, price = EXCLUDED.price, version = cart.version + 1, " +
+            "last_modified = CURRENT_TIMESTAMP";
+
+    @Modifying
+    @Query(nativeQuery = true, value = UPSERT_PLANT_LINE)
+    int upsertPlantLine(@Param("userId") Integer userId, @Param("plantId") Integer plantId,
+                        @Param("potId") Integer potId, @Param("price") BigDecimal price,
+                        @Param("amount") int amount);
+
+    @Modifying
+    @Query(nativeQuery = true, value = UPSERT_PLAN_LINE)
+    int upsertPlanLine(@Param("userId") Integer userId, @Param("planId") Long planId,
+                       @Param("price") BigDecimal price, @Param("amount") int amount);
+
+    // Updates of an existing line; they only touch rows owned by the user, so 0 means not found
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "UPDATE cart SET amount = :amount, pot_id = :potId, price = :price, version = version + 1, " +
+            "last_modified = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND user_id = :userId AND plant_id = :plantId")
+    int updatePlantLine(@Param("id") Integer id, @Param("userId") Integer userId, @Param("plantId") Integer plantId,
+                        @Param("potId") Integer potId, @Param("price") BigDecimal price,
+                        @Param("amount") int amount);
+
+    // Whether another line of the user already holds this plant in this pot, which a pot change
+    // of the given line would collide with on ux_cart_user_plant_pot
+    @Query(nativeQuery = true, value =
+            "SELECT EXISTS (SELECT 1 FROM cart WHERE user_id = :userId AND plant_id = :plantId " +
+            "AND COALESCE(pot_id, 0) = COALESCE(:potId, 0) AND id <> :id)")
+    boolean existsOtherPlantLine(@Param("id") Integer id, @Param("userId") Integer userId,
+                                 @Param("plantId") Integer plantId, @Param("potId") Integer potId);
+
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "UPDATE cart SET amount = :amount, pot_id = NULL, version = version + 1, last_modified = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND user_id = :userId AND subscription_plan_id IS NOT NULL")
+    int updatePlanLine(@Param("id") Integer id, @Param("userId") Integer userId, @Param("amount") int amount);
+
+    // Quantity changes; the versioned one only applies if nobody changed the line since it was read
+    String UPDATE_AMOUNT =
+            "UPDATE cart SET amount = :amount, version = version + 1, last_modified = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND user_id = :userId";
+    String UPDATE_AMOUNT_IF_VERSION =
+            "UPDATE cart SET amount = :amount, version = version + 1, last_modified = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND user_id = :userId AND version = :version";
+
+    @Modifying
+    @Query(nativeQuery = true, value = UPDATE_AMOUNT)
+    int updateAmount(@Param("id") Integer id, @Param("userId") Integer userId, @Param("amount") int amount);
+
+    @Modifying
+    @Query(nativeQuery = true, value = UPDATE_AMOUNT_IF_VERSION)
+    int updateAmountIfVersion(@Param("id") Integer id, @Param("userId") Integer userId,
+                              @Param("amount") int amount, @Param("version") long version);
+
+    boolean existsByIdAndUserId(Integer id, Integer userId);
 }
@@ -1,10 +1,13 @@
 package hu.plantplanet.repository;
 
 import hu.plantplanet.model.Comments;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comments, Integer> {
+    // Comment lists show the author's name
+    @EntityGraph("Comments.user")
     List<Comments> findByPlantId(Integer plantId);
 }
 
@@ -1,6 +1,7 @@
 package hu.plantplanet.repository;
 
 import hu.plantplanet.model.OrderItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,6 +9,7 @@ import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    @EntityGraph("OrderItem.plant")
     List<OrderItem> findByOrder_OrderId(Long orderId);
 }
 
@@ -0,0 +1,9 @@
+package hu.plantplanet.repository;
+
+import java.time.LocalDateTime;
+
+// Position of an order in the history listing; order_date is also the partition key of orders
+public interface OrderKey {
+    Long getOrderId();
+    LocalDateTime getOrderDate();
+}
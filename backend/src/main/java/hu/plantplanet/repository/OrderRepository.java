@@ -2,8 +2,57 @@ package hu.plantplanet.repository;
 
 import hu.plantplanet.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    // History pages are keyed on (order_date, order_id), newest first. The row comparison lets
+    // Postgres start the index scan right after the cursor instead of skipping earlier rows, and
+    // the plain order_date bound prunes the monthly partitions newer than the cursor.
+
+    @Query(value = "SELECT order_id AS \"orderId\", order_date AS \"orderDate\" FROM orders WHERE user_id = :userId " +
+            "ORDER BY order_date DESC, order_id DESC LIMIT :limit", nativeQuery = true)
+    List<OrderKey> findPageIdsByUserId(@Param("userId") Integer userId, @Param("limit") int limit);
+
+    @Query(value = "SELECT order_id AS \"orderId\", order_date AS \"orderDate\" FROM orders WHERE user_id = :userId " +
+            "AND order_date <= :orderDate AND (order_date, order_id) < (:orderDate, :orderId) " +
+            "ORDER BY order_date DESC, order_id DESC LIMIT :limit", nativeQuery = true)
+    List<OrderKey> findPageIdsByUserIdBefore(@Param("userId") Integer userId,
+                                         @Param("orderDate") LocalDateTime orderDate,
+                                         @Param("orderId") Long orderId,
+                                         @Param("limit") int limit);
+
+    @Query(value = "SELECT order_id AS \"orderId\", order_date AS \"orderDate\" FROM orders " +
+            "ORDER BY order_date DESC, order_id DESC LIMIT :limit", nativeQuery = true)
+    List<OrderKey> findPageIds(@Param("limit") int limit);
+
+    @Query(value = "SELECT order_id AS \"orderId\", order_date AS \"orderDate\" FROM orders " +
+            "WHERE order_date <= :orderDate AND (order_date, order_id) < (:orderDate, :orderId) " +
+            "ORDER BY order_date DESC, order_id DESC LIMIT :limit", nativeQuery = true)
+    List<OrderKey> findPageIdsBefore(@Param("orderDate") LocalDateTime orderDate,
+                                 @Param("orderId") Long orderId,
+                                 @Param("limit") int limit);
+
+    // Loads a page of orders with their items and the catalog rows they point to in one query;
+    // the user stays a lazy reference since only its id is read. The date range of the page keeps
+    // both tables to the partitions it falls in; an item always has its order's date, and orders
+    // are never stored without items, so the item condition drops nothing.
+    @Query("SELECT DISTINCT o FROM Order o " +
+            "LEFT JOIN FETCH o.orderItems i " +
+            "LEFT JOIN FETCH i.plant " +
+            "LEFT JOIN FETCH i.pot " +
+            "LEFT JOIN FETCH i.subscriptionPlan " +
+            "WHERE o.orderId IN :ids " +
+            "AND o.orderDate BETWEEN :from AND :to " +
+            "AND i.orderDate BETWEEN :from AND :to")
+    List<Order> findWithItemsByOrderIdIn(@Param("ids") Collection<Long> ids,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to);
 }
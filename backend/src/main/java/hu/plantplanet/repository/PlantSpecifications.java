@@ -0,0 +1,75 @@
+package hu.plantplanet.repository;
+
+import hu.plantplanet.model.Plants;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Building blocks for the catalog query; each returns null when the filter is not set
+public final class PlantSpecifications {
+
+    private PlantSpecifications() {
+    }
+
+    public static Specification<Plants> nameContains(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        String pattern = "%" + query.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return (root, cq, cb) -> cb.like(cb.lower(root.get("name")), pattern, '\\');
+    }
+
+    public static Specification<Plants> priceBetween(BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, cq, cb) -> {
+            if (min == null) return cb.lessThanOrEqualTo(root.get("price"), max);
+            if (max == null) return cb.greaterThanOrEqualTo(root.get("price"), min);
+            return cb.between(root.get("price"), min, max);
+        };
+    }
+
+    public static Specification<Plants> attributeIn(String attribute, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return (root, cq, cb) -> root.get(attribute).in(values);
+    }
+
+    // Same rule as the front end: plants without a parsed range always match,
+    // otherwise their whole range has to fit inside the requested one
+    public static Specification<Plants> temperatureWithin(Integer min, Integer max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, cq, cb) -> {
+            var lower = min == null ? cb.conjunction()
+                    : cb.or(cb.isNull(root.get("temperatureMin")), cb.greaterThanOrEqualTo(root.get("temperatureMin"), min));
+            var upper = max == null ? cb.conjunction()
+                    : cb.or(cb.isNull(root.get("temperatureMax")), cb.lessThanOrEqualTo(root.get("temperatureMax"), max));
+            return cb.and(lower, upper);
+        };
+    }
+
+    // Keyset predicates: rows strictly after (value, id) in the given ordering, id is the tie breaker
+    public static Specification<Plants> idAfter(int lastId) {
+        return (root, cq, cb) -> cb.greaterThan(root.get("id"), lastId);
+    }
+
+    public static Specification<Plants> priceAfter(BigDecimal lastPrice, int lastId, boolean descending) {
+        return (root, cq, cb) -> cb.or(
+                descending ? cb.lessThan(root.get("price"), lastPrice) : cb.greaterThan(root.get("price"), lastPrice),
+                cb.and(cb.equal(root.get("price"), lastPrice), cb.greaterThan(root.get("id"), lastId)));
+    }
+
+    public static Specification<Plants> nameAfter(String lastName, int lastId) {
+        return (root, cq, cb) -> cb.or(
+                cb.greaterThan(root.get("name"), lastName),
+                cb.and(cb.equal(root.get("name"), lastName), cb.greaterThan(root.get("id"), lastId)));
+    }
+}
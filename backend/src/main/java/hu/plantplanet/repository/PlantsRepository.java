@@ -1,10 +1,26 @@
 package hu.plantplanet.repository;
 
 import hu.plantplanet.model.Plants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
-public interface PlantsRepository extends JpaRepository<Plants, Integer> {
+public interface PlantsRepository extends JpaRepository<Plants, Integer>, JpaSpecificationExecutor<Plants> {
     Plants findByName(String name);
+
+    // Server-side cursor over the whole table; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Plants p ORDER BY p.id")
+    Stream<Plants> streamAll();
 }
@@ -3,6 +3,7 @@ package hu.plantplanet.repository;
 import hu.plantplanet.model.SubscriptionPlan;
 import hu.plantplanet.model.UserSubscription;
 import hu.plantplanet.model.Users;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
@@ -12,10 +13,15 @@ import java.util.Optional;
 @Repository
 public interface UserSubscriptionRepository extends JpaRepository<UserSubscription, Long> {
 
+    // The daily run emails the user and branches on the plan type
+    @EntityGraph("UserSubscription.userAndPlan")
     List<UserSubscription> findByNextTriggerDateBeforeAndStatus(
             LocalDateTime date,
             UserSubscription.SubscriptionStatus status
     );
     Optional<UserSubscription> findByPlanIdAndUser(Long planId, Users user);
+
+    // Returned as JSON, user and plan included
+    @EntityGraph("UserSubscription.userAndPlan")
     List<UserSubscription> findByUser(Users user);
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.model.CareLevel;
+import hu.plantplanet.model.CareProfile;
+
+import java.util.*;
+
+// Care profiles in catalog order with one bitset per attribute value, so a
+// multi-attribute filter is an OR within each attribute and an AND across them
+public final class CareProfileIndex {
+
+    private final CareProfile[] profiles;
+    private final Map<Integer, Integer> positionById;
+    private final EnumMap<CareLevel, BitSet> light;
+    private final EnumMap<CareLevel, BitSet> water;
+    private final EnumMap<CareLevel, BitSet> humidity;
+
+    public CareProfileIndex(List<CareProfile> profiles) {
+        this.profiles = profiles.toArray(new CareProfile[0]);
+        this.positionById = new HashMap<>(profiles.size() * 2);
+        this.light = new EnumMap<>(CareLevel.class);
+        this.water = new EnumMap<>(CareLevel.class);
+        this.humidity = new EnumMap<>(CareLevel.class);
+        for (CareLevel level : CareLevel.values()) {
+            light.put(level, new BitSet(profiles.size()));
+            water.put(level, new BitSet(profiles.size()));
+            humidity.put(level, new BitSet(profiles.size()));
+        }
+        for (int i = 0; i < this.profiles.length; i++) {
+            CareProfile profile = this.profiles[i];
+            positionById.put(profile.plantId(), i);
+            light.get(profile.light()).set(i);
+            water.get(profile.water()).set(i);
+            humidity.get(profile.humidity()).set(i);
+        }
+    }
+
+    public Optional<CareProfile> profileOf(Integer plantId) {
+        Integer position = positionById.get(plantId);
+        return position == null ? Optional.empty() : Optional.of(profiles[position]);
+    }
+
+    // Ids of plants matching every given constraint; empty sets and null bounds mean "any".
+    // A plant without a parsed temperature range passes the temperature bounds, like on the front end.
+    public List<Integer> matchingIds(Set<CareLevel> lightLevels, Set<CareLevel> waterLevels,
+                                     Set<CareLevel> humidityLevels, Integer minTemp, Integer maxTemp) {
+        BitSet result = new BitSet(profiles.length);
+        result.set(0, profiles.length);
+        restrict(result, light, lightLevels);
+        restrict(result, water, waterLevels);
+        restrict(result, humidity, humidityLevels);
+
+        List<Integer> ids = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            CareProfile profile = profiles[i];
+            if (minTemp != null && profile.minTemperature() != null && profile.minTemperature() < minTemp) continue;
+            if (maxTemp != null && profile.maxTemperature() != null && profile.maxTemperature() > maxTemp) continue;
+            ids.add(profile.plantId());
+        }
+        return ids;
+    }
+
+    private static void restrict(BitSet result, EnumMap<CareLevel, BitSet> attribute, Set<CareLevel> levels) {
+        if (levels == null || levels.isEmpty()) {
+            return;
+        }
+        BitSet any = new BitSet();
+        for (CareLevel level : levels) {
+            any.or(attribute.get(level));
+        }
+        result.and(any);
+    }
+}
@@ -0,0 +1,72 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.plant.PlantSummaryDTO;
+import hu.plantplanet.model.CareLevel;
+import hu.plantplanet.model.CareProfile;
+import hu.plantplanet.model.Plants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class CareProfileService {
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private PlantsService plantsService;
+
+    private record Profiles(long version, CareProfileIndex index, Map<Integer, PlantSummaryDTO> summaries) {
+    }
+
+    private volatile Profiles profiles;
+
+    public Optional<CareProfile> getProfile(Integer plantId) {
+        return currentProfiles().index().profileOf(plantId);
+    }
+
+    // Plants whose care needs match all given filters; level strings are "Low", "Medium" or "High"
+    public List<PlantSummaryDTO> findMatching(List<String> light, List<String> water, List<String> humidity,
+                                              Integer minTemp, Integer maxTemp) {
+        Profiles current = currentProfiles();
+        return current.index().matchingIds(levels(light), levels(water), levels(humidity), minTemp, maxTemp).stream()
+                .map(current.summaries()::get)
+                .toList();
+    }
+
+    private Set<CareLevel> levels(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Set.of();
+        }
+        Set<CareLevel> levels = values.stream().map(CareLevel::parse).collect(Collectors.toCollection(() -> EnumSet.noneOf(CareLevel.class)));
+        if (levels.contains(CareLevel.UNKNOWN)) {
+            throw new IllegalArgumentException("Care level must be one of Low, Medium, High");
+        }
+        return levels;
+    }
+
+    private Profiles currentProfiles() {
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        Profiles current = profiles;
+        if (current != null && current.version() == catalog.version()) {
+            return current;
+        }
+        synchronized (this) {
+            current = profiles;
+            if (current == null || current.version() != catalog.version()) {
+                List<Plants> plants = catalog.plants();
+                Map<Integer, PlantSummaryDTO> summaries = new HashMap<>(plants.size() * 2);
+                for (Plants plant : plants) {
+                    summaries.put(plant.getId(), plantsService.toSummary(plant));
+                }
+                current = new Profiles(catalog.version(),
+                        new CareProfileIndex(plants.stream().map(CareProfile::fromPlant).toList()), summaries);
+                profiles = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.cart.CartOperation;
+import hu.plantplanet.model.Plants;
+import hu.plantplanet.model.Pots;
+import hu.plantplanet.model.SubscriptionPlan;
+
+import java.math.BigDecimal;
+
+// A cart operation already checked against the catalog; plant and pot are set for plant
+// lines, plan for subscription lines, and only cartItemId/amount are used for update and remove.
+// expectedVersion, when given, makes an update fail if the line changed in the meantime.
+record CartMutation(CartOperation.Type type, Integer cartItemId, int amount,
+                    Plants plant, Pots pot, SubscriptionPlan plan, Long expectedVersion) {
+
+    CartMutation(CartOperation.Type type, Integer cartItemId, int amount, Plants plant, Pots pot, SubscriptionPlan plan) {
+        this(type, cartItemId, amount, plant, pot, plan, null);
+    }
+
+    boolean isSubscription() {
+        return plan != null;
+    }
+
+    BigDecimal price() {
+        return plan != null ? plan.getPrice() : plant.getPrice().add(pot.getPrice());
+    }
+}
@@ -1,151 +1,403 @@
 package hu.plantplanet.service;
 
+import hu.plantplanet.dto.cart.CartBatchResponse;
+import hu.plantplanet.dto.cart.CartLineDTO;
+import hu.plantplanet.dto.cart.CartOperation;
+import hu.plantplanet.exception.CartConflictException;
 import hu.plantplanet.model.*;
 import hu.plantplanet.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 @Service
 public class CartService {
 
+    public static final int MAX_BATCH_OPERATIONS = 200;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String DELETE_LINE =
+            "DELETE FROM cart WHERE id = :id AND user_id = :userId";
+    private static final String DELETE_LINE_RETURNING_OWNER =
+            "DELETE FROM cart WHERE id = :id RETURNING user_id";
+
     @Autowired
     private CartRepository cartRepository;
 
     @Autowired
-    private PlantsRepository plantRepository;
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
 
     @Autowired
-    private UsersRepository userRepository;
+    private TransactionTemplate transactionTemplate;
 
     @Autowired
-    private SubscriptionPlanRepository subscriptionPlanRepository;
+    private CartTotalCache cartTotalCache;
 
     @Autowired
-    private PotRepository potRepository;
+    private ImageService imageService;
 
-    // Add or update cart item
+    // Present only with cart.storage.mode=write-behind
+    @Autowired(required = false)
+    private CartWriteBehindStore writeBehindStore;
+
+    // A resolved batch operation; mustMatch marks statements that fail when they touch no row
+    private record CartStatement(String sql, SqlParameterSource params, boolean mustMatch) {
+    }
+
+    // Add or update cart item with a single write statement
     public void addOrUpdateCartItem(Integer userId, Integer itemId, int amount,
                                     Integer cartItemId, boolean isSubscription, Integer potId) {
-        Users user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Cart cartItem;
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be at least 1");
+        }
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
         Pots pot = potId != null ?
-                potRepository.findById(potId)
+                catalog.pot(potId)
                         .orElseThrow(() -> new RuntimeException("Pot not found")) :
-                potRepository.findById(1)
+                catalog.pot(1)
                         .orElseThrow(() -> new RuntimeException("Default pot with id 1 not found"));
 
+        CartOperation.Type type = cartItemId != null ? CartOperation.Type.UPDATE : CartOperation.Type.ADD;
+        CartMutation mutation;
         if (isSubscription) {
-            SubscriptionPlan plan = subscriptionPlanRepository.findById(Long.valueOf(itemId))
+            SubscriptionPlan plan = catalog.plan(itemId)
                     .orElseThrow(() -> new RuntimeException("Subscription plan not found"));
+            mutation = new CartMutation(type, cartItemId, amount, null, null, plan);
+        } else {
+            Plants plant = catalog.plant(itemId)
+                    .orElseThrow(() -> new RuntimeException("Plant not found"));
+            mutation = new CartMutation(type, cartItemId, amount, plant, pot, null);
+        }
 
-            if (cartItemId != null) {
-                cartItem = cartRepository.findById(Long.valueOf(cartItemId))
-                        .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        if (writeBehindStore != null) {
+            writeBehindStore.apply(userId, List.of(mutation));
+            return;
+        }
 
-                if (!cartItem.getUser().getId().equals(userId)) {
-                    throw new RuntimeException("Cart item does not belong to the specified user");
+        int updated;
+        try {
+            // The amount is added inside the statement, so concurrent adds never lose an increment
+            updated = retryOnConflict(() -> {
+                if (mutation.isSubscription()) {
+                    return cartItemId != null
+                            ? cartRepository.updatePlanLine(cartItemId, userId, amount)
+                            : cartRepository.upsertPlanLine(userId, mutation.plan().getId(), mutation.price(), amount);
+                }
+                if (cartItemId == null) {
+                    return cartRepository.upsertPlantLine(userId, itemId, pot.getId(), mutation.price(), amount);
                 }
-                cartItem.setAmount(amount);
-                cartItem.setPot(null);
-            } else {
-                Optional<Cart> existingCartItem = cartRepository.findByUserIdAndSubscriptionPlanId(userId, Long.valueOf(itemId));
-
-                if (existingCartItem.isPresent()) {
-                    cartItem = existingCartItem.get();
-                    cartItem.setAmount(cartItem.getAmount() + amount);
-                } else {
-                    cartItem = new Cart();
-                    cartItem.setUser(user);
-                    cartItem.setSubscriptionPlan(plan);
-                    cartItem.setPlant(null);
-                    cartItem.setPot(null);
-                    cartItem.setPrice(plan.getPrice());
-                    cartItem.setAmount(amount);
-                    cartItem.setSubscription(true);
+                // Same answer as the write-behind store gives for a pot the plant already has in another line
+                if (cartRepository.existsOtherPlantLine(cartItemId, userId, itemId, pot.getId())) {
+                    throw new RuntimeException("Cart already contains this plant with the selected pot");
                 }
+                return cartRepository.updatePlantLine(cartItemId, userId, itemId, pot.getId(), mutation.price(), amount);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request may have taken the pot between the check and the update
+            if (cartItemId != null && !isSubscription
+                    && cartRepository.existsOtherPlantLine(cartItemId, userId, itemId, pot.getId())) {
+                throw new RuntimeException("Cart already contains this plant with the selected pot");
             }
-        } else {
-            Plants plant = plantRepository.findById(itemId)
-                    .orElseThrow(() -> new RuntimeException("Plant not found"));
+            throw constraintViolation(userId, e);
+        }
+
+        if (updated == 0) {
+            throw new RuntimeException("Cart item not found");
+        }
+        cartTotalCache.invalidate(userId);
+    }
+
+    // Apply many add/update/remove operations in order within one transaction
+    public CartBatchResponse applyBatch(Integer userId, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " cart operations can be sent at once");
+        }
 
-            if (cartItemId != null) {
-                cartItem = cartRepository.findById(Long.valueOf(cartItemId))
-                        .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        // Resolve everything against the catalog first, so an invalid operation writes nothing
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        List<CartMutation> mutations = new ArrayList<>(operations.size());
+        for (CartOperation operation : operations) {
+            mutations.add(resolve(operation, catalog));
+        }
 
-                if (!cartItem.getUser().getId().equals(userId) || !cartItem.getPlant().getId().equals(itemId)) {
-                    throw new RuntimeException("Cart item does not belong to the specified user and plant");
-                }
-                cartItem.setAmount(amount);
-                cartItem.setPot(pot);
-            } else {
-                // Find existing cart items for this user and plant
-                List<Cart> existingCartItems = cartRepository.findByUserIdAndPlantId(userId, itemId);
-
-                // Try to find an exact match (same plant and pot)
-                Optional<Cart> exactMatch = existingCartItems.stream()
-                        .filter(item -> {
-                            if (pot == null) return item.getPot() == null;
-                            return item.getPot() != null && item.getPot().getId().equals(pot.getId());
-                        })
-                        .findFirst();
-
-                if (exactMatch.isPresent()) {
-                    // Update existing item with same plant and pot
-                    cartItem = exactMatch.get();
-                    cartItem.setAmount(cartItem.getAmount() + amount);
-                } else {
-                    // Create new entry
-                    cartItem = new Cart();
-                    cartItem.setUser(user);
-                    cartItem.setPlant(plant);
-                    cartItem.setSubscriptionPlan(null);
-                    cartItem.setPot(pot);
-                    BigDecimal totalPrice = plant.getPrice();
-                    if (pot != null) {
-                        totalPrice = totalPrice.add(pot.getPrice());
+        if (writeBehindStore != null) {
+            writeBehindStore.apply(userId, mutations);
+            return new CartBatchResponse(getCartView(userId), writeBehindStore.total(userId));
+        }
+
+        List<CartStatement> statements = mutations.stream().map(mutation -> toStatement(userId, mutation)).toList();
+
+        // Consecutive statements with the same SQL go to the driver as one JDBC batch, which keeps the order
+        try {
+            return retryOnConflict(() -> {
+                executeBatched(statements);
+                cartTotalCache.invalidate(userId);
+
+                // The cached total only moves after commit, so sum directly here
+                return new CartBatchResponse(getCartView(userId), sumTotal(userId));
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw constraintViolation(userId, e);
+        }
+    }
+
+    // With the amount checked up front, a rejected write points at a missing user or at a plant,
+    // pot or plan deleted since the catalog snapshot was taken; the user check only runs on failure
+    private RuntimeException constraintViolation(Integer userId, DataIntegrityViolationException e) {
+        if (!usersRepository.existsById(userId)) {
+            return new RuntimeException("User not found");
+        }
+        return new RuntimeException("Cart item refers to a plant, pot or plan that no longer exists", e);
+    }
+
+    private void executeBatched(List<CartStatement> statements) {
+        int start = 0;
+        while (start < statements.size()) {
+            String sql = statements.get(start).sql();
+            int end = start;
+            while (end < statements.size() && statements.get(end).sql().equals(sql)) {
+                end++;
+            }
+            List<CartStatement> run = statements.subList(start, end);
+            int[] counts = jdbcTemplate.batchUpdate(sql,
+                    run.stream().map(CartStatement::params).toArray(SqlParameterSource[]::new));
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0 && run.get(i).mustMatch()) {
+                    if (run.get(i).params().hasValue("version")) {
+                        throw new CartConflictException("Cart item was changed by another request");
                     }
-                    cartItem.setPrice(totalPrice);
-                    cartItem.setAmount(amount);
-                    cartItem.setSubscription(false);
+                    throw new RuntimeException("Cart item not found");
                 }
             }
+            start = end;
         }
+    }
 
-        cartRepository.save(cartItem);
+    // Runs the work in its own transaction and retries it a few times when the database reports
+    // a transient conflict such as a deadlock or a serialization failure between parallel cart writes
+    private <T> T retryOnConflict(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(5L * attempt, 25L * attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private CartMutation resolve(CartOperation operation, CatalogSnapshot.Data catalog) {
+        if (operation.getOp() == null) {
+            throw new IllegalArgumentException("Cart operation type is required");
+        }
+        if (operation.getOp() != CartOperation.Type.REMOVE && (operation.getAmount() == null || operation.getAmount() < 1)) {
+            throw new IllegalArgumentException("Amount must be at least 1");
+        }
+        if (operation.getOp() != CartOperation.Type.ADD) {
+            if (operation.getCartItemId() == null) {
+                throw new IllegalArgumentException("cartItemId is required for " + operation.getOp().name().toLowerCase());
+            }
+            int amount = operation.getAmount() != null ? operation.getAmount() : 0;
+            return new CartMutation(operation.getOp(), operation.getCartItemId(), amount, null, null, null,
+                    operation.getOp() == CartOperation.Type.UPDATE ? operation.getVersion() : null);
+        }
+
+        if (operation.getItemId() == null) {
+            throw new IllegalArgumentException("itemId is required for add");
+        }
+        if (Boolean.TRUE.equals(operation.getIsSubscription())) {
+            SubscriptionPlan plan = catalog.plan(operation.getItemId())
+                    .orElseThrow(() -> new RuntimeException("Subscription plan not found"));
+            return new CartMutation(CartOperation.Type.ADD, null, operation.getAmount(), null, null, plan);
+        }
+        Plants plant = catalog.plant(operation.getItemId())
+                .orElseThrow(() -> new RuntimeException("Plant not found"));
+        Pots pot = operation.getPotId() != null ?
+                catalog.pot(operation.getPotId())
+                        .orElseThrow(() -> new RuntimeException("Pot not found")) :
+                catalog.pot(1)
+                        .orElseThrow(() -> new RuntimeException("Default pot with id 1 not found"));
+        return new CartMutation(CartOperation.Type.ADD, null, operation.getAmount(), plant, pot, null);
+    }
+
+    private CartStatement toStatement(Integer userId, CartMutation mutation) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        switch (mutation.type()) {
+            case ADD -> {
+                params.addValue("amount", mutation.amount()).addValue("price", mutation.price());
+                if (mutation.isSubscription()) {
+                    params.addValue("planId", mutation.plan().getId());
+                    return new CartStatement(CartRepository.UPSERT_PLAN_LINE, params, false);
+                }
+                params.addValue("plantId", mutation.plant().getId()).addValue("potId", mutation.pot().getId());
+                return new CartStatement(CartRepository.UPSERT_PLANT_LINE, params, false);
+            }
+            case UPDATE -> {
+                params.addValue("id", mutation.cartItemId()).addValue("amount", mutation.amount());
+                if (mutation.expectedVersion() != null) {
+                    params.addValue("version", mutation.expectedVersion());
+                    return new CartStatement(CartRepository.UPDATE_AMOUNT_IF_VERSION, params, true);
+                }
+                return new CartStatement(CartRepository.UPDATE_AMOUNT, params, true);
+            }
+            default -> {
+                params.addValue("id", mutation.cartItemId());
+                return new CartStatement(DELETE_LINE, params, true);
+            }
+        }
     }
 
     // Remove a cart item
     public void removeCartItem(Integer cartItemId) {
-        Cart cartItem = cartRepository.findById(Long.valueOf(cartItemId))
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        cartRepository.delete(cartItem);
+        if (writeBehindStore != null) {
+            writeBehindStore.remove(cartItemId);
+            return;
+        }
+        List<Integer> owners = jdbcTemplate.queryForList(DELETE_LINE_RETURNING_OWNER,
+                Map.of("id", cartItemId), Integer.class);
+        if (owners.isEmpty()) {
+            throw new RuntimeException("Cart item not found");
+        }
+        cartTotalCache.invalidate(owners.get(0));
+    }
+
+    // View all cart items for a user as flat lines; only cart columns are read, the rest comes from the catalog
+    public List<CartLineDTO> getCartView(Integer userId) {
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        if (writeBehindStore != null) {
+            return writeBehindStore.items(userId).stream()
+                    .map(line -> toLine(catalog, line.getId(),
+                            line.getPlant() != null ? line.getPlant().getId() : null,
+                            line.getPot() != null ? line.getPot().getId() : null,
+                            line.getSubscriptionPlan() != null ? line.getSubscriptionPlan().getId() : null,
+                            line.getPrice(), line.getAmount(), line.isSubscription(), line.getVersion()))
+                    .toList();
+        }
+        return cartRepository.findLinesByUserId(userId).stream()
+                .map(line -> toLine(catalog, line.getId(), line.getPlantId(), line.getPotId(),
+                        line.getSubscriptionPlanId(), line.getPrice(), line.getAmount(), line.getSubscription(),
+                        line.getVersion()))
+                .toList();
     }
 
-    // View all cart items for a user
-    public List<Cart> getCartItems(Integer userId) {
-        return cartRepository.findByUserIdWithDetails(userId);
+    private CartLineDTO toLine(CatalogSnapshot.Data catalog, Integer id, Integer plantId, Integer potId,
+                               Long planId, BigDecimal price, int amount, boolean subscription, long version) {
+        CartLineDTO line = new CartLineDTO();
+        line.setId(id);
+        line.setPlantId(plantId);
+        line.setPotId(potId);
+        line.setSubscriptionPlanId(planId);
+        line.setPrice(price);
+        line.setAmount(amount);
+        line.setSubscription(subscription);
+        line.setVersion(version);
+        if (planId != null) {
+            catalog.plan(planId).ifPresent(plan -> {
+                line.setName(plan.getName());
+                line.setImage(imageService.thumbnail(plan.getImages()));
+                line.setItemPrice(plan.getPrice());
+            });
+        } else if (plantId != null) {
+            catalog.plant(plantId).ifPresent(plant -> {
+                line.setName(plant.getName());
+                line.setImage(imageService.thumbnail(plant.getImages()));
+                line.setItemPrice(plant.getPrice());
+            });
+        }
+        if (potId != null) {
+            catalog.pot(potId).ifPresent(pot -> {
+                line.setPotName(pot.getName());
+                line.setPotImage(pot.getImage());
+                line.setPotPrice(pot.getPrice());
+            });
+        }
+        return line;
     }
 
     // Calculate the total price of the cart
     public BigDecimal calculateTotalPrice(Integer userId) {
-        List<Cart> cartItems = cartRepository.findByUserId(userId);
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        for (Cart item : cartItems) {
-            totalPrice = totalPrice.add(item.getPrice().multiply(BigDecimal.valueOf(item.getAmount())));
+        if (writeBehindStore != null) {
+            return writeBehindStore.total(userId);
+        }
+        return cartTotalCache.get(userId, () -> sumTotal(userId));
+    }
+
+    private BigDecimal sumTotal(Integer userId) {
+        BigDecimal total = cartRepository.sumTotalByUserId(userId);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    // Set the quantity of a line; with a version it only applies if the line was not changed since
+    public void updateCartItem(Integer userId, Integer plantId, int amount, Long version) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be at least 1");
+        }
+        if (writeBehindStore != null) {
+            writeBehindStore.apply(userId,
+                    List.of(new CartMutation(CartOperation.Type.UPDATE, plantId, amount, null, null, null, version)));
+            return;
+        }
+        int updated = retryOnConflict(() -> version != null
+                ? cartRepository.updateAmountIfVersion(plantId, userId, amount, version)
+                : cartRepository.updateAmount(plantId, userId, amount));
+        if (updated == 0) {
+            if (version != null && cartRepository.existsByIdAndUserId(plantId, userId)) {
+                throw new CartConflictException("Cart item was changed by another request");
+            }
+            throw new RuntimeException("Cart item not found");
         }
-        return totalPrice;
+        cartTotalCache.invalidate(userId);
     }
 
-    public void updateCartItem(Integer userId, Integer plantId, int amount) {
-        Cart existingCartItem = cartRepository.findByIdAndUserId(plantId, userId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        existingCartItem.setAmount(amount);
-        cartRepository.save(existingCartItem);
+    // Lock the user's cart lines, remove them and hand them over; only valid inside the checkout transaction
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<CartLineView> takeCartForCheckout(Integer userId) {
+        flushPendingChanges(userId);
+        List<CartLineView> lines = cartRepository.findLinesByUserIdForUpdate(userId);
+        if (!lines.isEmpty()) {
+            cartRepository.deleteLines(lines.stream().map(CartLineView::getId).toList());
+            cartTotalCache.invalidate(userId);
+            if (writeBehindStore != null) {
+                writeBehindStore.discardAfterCommit(userId);
+            }
+        }
+        return lines;
+    }
+
+    // Make sure pending in-memory cart changes are in the database, e.g. before checkout
+    public void flushPendingChanges(Integer userId) {
+        if (writeBehindStore != null) {
+            writeBehindStore.flush(userId);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package hu.plantplanet.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Deletes carts nobody touched for cart.sweeper.ttl-days. A cart counts as abandoned only if none
+// of its lines changed since the cutoff. Each chunk is a single autocommitted DELETE, and lines
+// locked by live cart traffic or a checkout are skipped rather than waited for.
+@Service
+@Lazy(false)
+public class CartSweeperService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartSweeperService.class);
+
+    private static final String DELETE_ABANDONED_CHUNK =
+            "DELETE FROM cart WHERE id IN (" +
+            "SELECT c.id FROM cart c " +
+            "WHERE c.last_modified < :cutoff " +
+            "AND NOT EXISTS (SELECT 1 FROM cart r WHERE r.user_id = c.user_id AND r.last_modified >= :cutoff) " +
+            "LIMIT :chunk FOR UPDATE SKIP LOCKED) " +
+            "RETURNING user_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CartTotalCache cartTotalCache;
+    private final ObjectProvider<CartWriteBehindStore> writeBehindStore;
+    private final int ttlDays;
+    private final int chunkSize;
+
+    public CartSweeperService(NamedParameterJdbcTemplate jdbcTemplate,
+                              CartTotalCache cartTotalCache,
+                              ObjectProvider<CartWriteBehindStore> writeBehindStore,
+                              @Value("${cart.sweeper.ttl-days:30}") int ttlDays,
+                              @Value("${cart.sweeper.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cartTotalCache = cartTotalCache;
+        this.writeBehindStore = writeBehindStore;
+        this.ttlDays = ttlDays;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(cron = "${cart.sweeper.cron:0 30 3 * * *}")
+    public void sweepAbandonedCarts() {
+        int deleted = sweep(LocalDateTime.now().minusDays(ttlDays));
+        if (deleted > 0) {
+            logger.info("Removed {} abandoned cart lines older than {} days", deleted, ttlDays);
+        }
+    }
+
+    // Delete chunk by chunk until a chunk comes back short; returns the number of lines removed
+    public int sweep(LocalDateTime cutoff) {
+        MapSqlParameterSource params = new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("chunk", chunkSize);
+        int total = 0;
+        List<Integer> owners;
+        do {
+            owners = jdbcTemplate.queryForList(DELETE_ABANDONED_CHUNK, params, Integer.class);
+            total += owners.size();
+            Set<Integer> users = new HashSet<>(owners);
+            users.forEach(cartTotalCache::invalidate);
+            // Swept carts must not come back from memory with the next write-behind flush
+            writeBehindStore.ifAvailable(store -> users.forEach(store::discardIfClean));
+        } while (owners.size() == chunkSize);
+        return total;
+    }
+}
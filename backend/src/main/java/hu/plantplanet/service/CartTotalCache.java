@@ -0,0 +1,82 @@
+package hu.plantplanet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Per-user cart totals, invalidated rather than updated on mutation: an upsert or a batch does
+// not report the line's previous amount, so the new total could not be derived without a read.
+// Every invalidation takes a stamp from one counter, and a total is only stored if no stamp was
+// taken for the user while it was being summed, so a reader racing with a write can never cache
+// a total that predates it. Users are kept in a bounded LRU; for evicted users the highest
+// evicted stamp stands in for their own.
+@Component
+public class CartTotalCache {
+
+    // total is null after an invalidation, until the next read sums it again
+    private record Entry(long stamp, BigDecimal total) {
+    }
+
+    private final Map<Integer, Entry> entries;
+    private long lastStamp;
+    private long evictedStamp;
+
+    public CartTotalCache(@Value("${cart.total-cache.max-entries:10000}") int maxEntries) {
+        int limit = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= limit) {
+                    return false;
+                }
+                evictedStamp = Math.max(evictedStamp, eldest.getValue().stamp());
+                return true;
+            }
+        };
+    }
+
+    public BigDecimal get(Integer userId, Supplier<BigDecimal> loader) {
+        long startedAt;
+        synchronized (this) {
+            Entry cached = entries.get(userId);
+            if (cached != null && cached.total() != null) {
+                return cached.total();
+            }
+            startedAt = lastStamp;
+        }
+        // Summed outside the lock, so one slow query does not hold up every other user
+        BigDecimal total = loader.get();
+        synchronized (this) {
+            Entry current = entries.get(userId);
+            long stamp = current != null ? current.stamp() : evictedStamp;
+            if (stamp <= startedAt) {
+                entries.put(userId, new Entry(stamp, total));
+            }
+        }
+        return total;
+    }
+
+    // Drop the user's total once the surrounding transaction commits
+    public void invalidate(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private synchronized void evict(Integer userId) {
+        entries.put(userId, new Entry(++lastStamp, null));
+    }
+}
@@ -0,0 +1,510 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.cart.CartOperation;
+import hu.plantplanet.exception.CartConflictException;
+import hu.plantplanet.model.Cart;
+import hu.plantplanet.model.Users;
+import hu.plantplanet.repository.CartRepository;
+import hu.plantplanet.repository.UsersRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Optional cart storage enabled with cart.storage.mode=write-behind. Active carts are kept in
+// memory and every change is a memory operation under the user's lock stripe. Dirty carts are
+// written to the cart table in batches on a short interval, and on demand before checkout.
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "cart.storage.mode", havingValue = "write-behind")
+public class CartWriteBehindStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehindStore.class);
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int ID_POOL_SIZE = 50;
+
+    private static final String NEXT_IDS =
+            "SELECT nextval(pg_get_serial_sequence('cart', 'id')) FROM generate_series(1, :count)";
+    private static final String OWNER_OF_LINE =
+            "SELECT user_id FROM cart WHERE id = :id";
+    private static final String DELETE_LINE =
+            "DELETE FROM cart WHERE id = :id";
+    private static final String WRITE_LINE =
+            "INSERT INTO cart (id, user_id, plant_id, pot_id, subscription_plan_id, price, amount, is_subscription, version) " +
+            "VALUES (:id, :userId, :plantId, :potId, :planId, :price, :amount, :subscription, :version) " +
+            "ON CONFLICT (id) DO UPDATE SET pot_id = EXCLUDED.pot_id, price = EXCLUDED.price, " +
+            "amount = EXCLUDED.amount, version = EXCLUDED.version, last_modified = CURRENT_TIMESTAMP";
+
+    private final CartRepository cartRepository;
+    private final UsersRepository usersRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate flushTransaction;
+    private final int flushBatchSize;
+    private final long idleEvictionMillis;
+    private final int maxFailedFlushes;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private final ConcurrentMap<Integer, UserCart> carts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Integer> lineOwners = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Deque<Integer> idPool = new ArrayDeque<>();
+
+    // A user's cart in memory. version counts changes, flushedVersion is the last one in the database
+    private static class UserCart {
+        Users user;
+        List<Cart> lines;
+        Set<Integer> removedIds = new HashSet<>();
+        long version;
+        long flushedVersion;
+        int failedFlushes;
+        long lastAccess = System.currentTimeMillis();
+
+        UserCart(Users user, List<Cart> lines) {
+            this.user = user;
+            this.lines = lines;
+        }
+
+        boolean isDirty() {
+            return version != flushedVersion;
+        }
+    }
+
+    // Rows to write for one user, captured under the user's lock
+    private record FlushEntry(Integer userId, long version, List<Cart> lines, Set<Integer> removedIds) {
+    }
+
+    public CartWriteBehindStore(CartRepository cartRepository,
+                                UsersRepository usersRepository,
+                                NamedParameterJdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${cart.write-behind.flush-batch-size:100}") int flushBatchSize,
+                                @Value("${cart.write-behind.idle-eviction-minutes:30}") long idleEvictionMinutes,
+                                @Value("${cart.write-behind.max-failed-flushes:5}") int maxFailedFlushes) {
+        this.cartRepository = cartRepository;
+        this.usersRepository = usersRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Flushes commit on their own, even when called from inside the checkout transaction
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        this.idleEvictionMillis = idleEvictionMinutes * 60_000L;
+        this.maxFailedFlushes = Math.max(1, maxFailedFlushes);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Apply the mutations in order; when one fails the cart is left untouched
+    public void apply(Integer userId, List<CartMutation> mutations) {
+        withCart(userId, cart -> {
+            List<Cart> lines = new ArrayList<>(cart.lines.size() + mutations.size());
+            cart.lines.forEach(line -> lines.add(copyOf(line)));
+            Set<Integer> removed = new HashSet<>();
+            for (CartMutation mutation : mutations) {
+                applyTo(userId, cart, lines, removed, mutation);
+            }
+            cart.lines = lines;
+            cart.removedIds.addAll(removed);
+            lines.forEach(line -> lineOwners.put(line.getId(), userId));
+            removed.forEach(lineOwners::remove);
+            cart.version++;
+            dirtyUsers.add(userId);
+            return null;
+        });
+    }
+
+    public void remove(Integer cartItemId) {
+        Integer userId = lineOwners.get(cartItemId);
+        if (userId == null) {
+            userId = jdbcTemplate.queryForList(OWNER_OF_LINE, Map.of("id", cartItemId), Integer.class)
+                    .stream().findFirst()
+                    .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        }
+        apply(userId, List.of(new CartMutation(CartOperation.Type.REMOVE, cartItemId, 0, null, null, null)));
+    }
+
+    public List<Cart> items(Integer userId) {
+        return withCart(userId, cart -> cart.lines.stream().map(CartWriteBehindStore::copyOf).toList());
+    }
+
+    public BigDecimal total(Integer userId) {
+        return withCart(userId, cart -> cart.lines.stream()
+                .map(line -> line.getPrice().multiply(BigDecimal.valueOf(line.getAmount())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    // Write the user's pending changes now, e.g. before the cart is turned into an order, and fail
+    // if they cannot be written. Always waits for the flush lock: a scheduled flush in progress may
+    // already have captured this cart, and only its outcome shows whether the database is current.
+    public void flush(Integer userId) {
+        flushLock.lock();
+        try {
+            FlushEntry entry = capture(userId);
+            if (entry == null) {
+                return;
+            }
+            try {
+                write(List.of(entry));
+                markFlushed(entry);
+            } catch (RuntimeException e) {
+                restore(entry, e);
+                throw new RuntimeException("Cart changes could not be saved, please try again", e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Forget the user's cart once the surrounding transaction commits, e.g. after checkout took its lines
+    public void discardAfterCommit(Integer userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                discard(userId);
+            }
+        });
+    }
+
+    // Drop the user's cart from memory; the next access reloads it from the database
+    public void discard(Integer userId) {
+        discard(userId, false);
+    }
+
+    // Same, but keeps a cart with unwritten changes, whose next flush writes it back as a whole
+    public void discardIfClean(Integer userId) {
+        discard(userId, true);
+    }
+
+    private void discard(Integer userId, boolean onlyIfClean) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = carts.get(userId);
+            if (cart == null || (onlyIfClean && cart.isDirty())) {
+                return;
+            }
+            carts.remove(userId);
+            cart.lines.forEach(line -> lineOwners.remove(line.getId()));
+            dirtyUsers.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:1000}")
+    public void flushDirty() {
+        List<Integer> pending = new ArrayList<>(dirtyUsers);
+        for (int start = 0; start < pending.size(); start += flushBatchSize) {
+            flushUsers(pending.subList(start, Math.min(pending.size(), start + flushBatchSize)));
+        }
+        evictIdle();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirty();
+    }
+
+    // Amounts are checked here, before anything reaches memory: a line the cart table's
+    // CHECK (amount > 0) would reject could never be flushed
+    private void applyTo(Integer userId, UserCart cart, List<Cart> lines, Set<Integer> removed, CartMutation mutation) {
+        if (mutation.type() != CartOperation.Type.REMOVE && mutation.amount() < 1) {
+            throw new IllegalArgumentException("Amount must be at least 1");
+        }
+        switch (mutation.type()) {
+            case ADD -> {
+                Optional<Cart> existing = lines.stream().filter(line -> sameItem(line, mutation)).findFirst();
+                if (existing.isPresent()) {
+                    int amount = existing.get().getAmount() + mutation.amount();
+                    if (amount < 1) {
+                        throw new IllegalArgumentException("Cart item amount is too large");
+                    }
+                    existing.get().setAmount(amount);
+                    existing.get().setPrice(mutation.price());
+                    existing.get().setVersion(existing.get().getVersion() + 1);
+                } else {
+                    lines.add(newLine(userId, cart, mutation));
+                }
+            }
+            case UPDATE -> {
+                Cart line = ownedLine(lines, mutation.cartItemId());
+                if (mutation.expectedVersion() != null && line.getVersion() != mutation.expectedVersion()) {
+                    throw new CartConflictException("Cart item was changed by another request");
+                }
+                if (mutation.plant() != null) {
+                    if (line.getPlant() == null || !line.getPlant().getId().equals(mutation.plant().getId())) {
+                        throw new RuntimeException("Cart item does not belong to the specified user and plant");
+                    }
+                    boolean taken = lines.stream().anyMatch(other -> other != line && sameItem(other, mutation));
+                    if (taken) {
+                        throw new RuntimeException("Cart already contains this plant with the selected pot");
+                    }
+                    line.setPot(mutation.pot());
+                    line.setPrice(mutation.price());
+                } else if (mutation.plan() != null) {
+                    if (line.getSubscriptionPlan() == null) {
+                        throw new RuntimeException("Cart item not found");
+                    }
+                    line.setPot(null);
+                }
+                line.setAmount(mutation.amount());
+                line.setVersion(line.getVersion() + 1);
+            }
+            case REMOVE -> {
+                Cart line = ownedLine(lines, mutation.cartItemId());
+                lines.remove(line);
+                removed.add(line.getId());
+            }
+        }
+    }
+
+    private static boolean sameItem(Cart line, CartMutation mutation) {
+        if (mutation.isSubscription()) {
+            return line.getSubscriptionPlan() != null
+                    && line.getSubscriptionPlan().getId().equals(mutation.plan().getId());
+        }
+        return line.getPlant() != null
+                && line.getPlant().getId().equals(mutation.plant().getId())
+                && line.getPot() != null
+                && line.getPot().getId().equals(mutation.pot().getId());
+    }
+
+    private static Cart ownedLine(List<Cart> lines, Integer cartItemId) {
+        return lines.stream()
+                .filter(line -> line.getId().equals(cartItemId))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Cart item not found"));
+    }
+
+    private Cart newLine(Integer userId, UserCart cart, CartMutation mutation) {
+        if (cart.user == null) {
+            cart.user = usersRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+        }
+        Cart line = new Cart();
+        line.setId(nextId());
+        line.setUser(cart.user);
+        line.setPlant(mutation.plant());
+        line.setPot(mutation.isSubscription() ? null : mutation.pot());
+        line.setSubscriptionPlan(mutation.plan());
+        line.setPrice(mutation.price());
+        line.setAmount(mutation.amount());
+        line.setSubscription(mutation.isSubscription());
+        return line;
+    }
+
+    // New lines take ids from the cart sequence up front, fetched in blocks
+    private synchronized Integer nextId() {
+        if (idPool.isEmpty()) {
+            jdbcTemplate.queryForList(NEXT_IDS, Map.of("count", ID_POOL_SIZE), Long.class)
+                    .forEach(id -> idPool.add(Math.toIntExact(id)));
+        }
+        return idPool.poll();
+    }
+
+    private <T> T withCart(Integer userId, Function<UserCart, T> action) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                cart = load(userId);
+                carts.put(userId, cart);
+            }
+            cart.lastAccess = System.currentTimeMillis();
+            return action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserCart load(Integer userId) {
+        List<Cart> lines = new ArrayList<>(cartRepository.findByUserIdWithDetails(userId));
+        Users user = lines.isEmpty() ? usersRepository.findById(userId).orElse(null) : lines.get(0).getUser();
+        lines.forEach(line -> lineOwners.put(line.getId(), userId));
+        return new UserCart(user, lines);
+    }
+
+    private ReentrantLock stripeFor(Integer userId) {
+        return stripes[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    private void flushUsers(List<Integer> userIds) {
+        flushLock.lock();
+        try {
+            List<FlushEntry> entries = new ArrayList<>(userIds.size());
+            for (Integer userId : userIds) {
+                FlushEntry entry = capture(userId);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            if (entries.isEmpty()) {
+                return;
+            }
+            try {
+                write(entries);
+                entries.forEach(this::markFlushed);
+            } catch (RuntimeException e) {
+                if (entries.size() == 1) {
+                    restore(entries.get(0), e);
+                    return;
+                }
+                // One bad cart should not hold back the rest of the batch
+                for (FlushEntry entry : entries) {
+                    try {
+                        write(List.of(entry));
+                        markFlushed(entry);
+                    } catch (RuntimeException single) {
+                        restore(entry, single);
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private FlushEntry capture(Integer userId) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            dirtyUsers.remove(userId);
+            UserCart cart = carts.get(userId);
+            if (cart == null || !cart.isDirty()) {
+                return null;
+            }
+            FlushEntry entry = new FlushEntry(userId, cart.version,
+                    cart.lines.stream().map(CartWriteBehindStore::copyOf).toList(), cart.removedIds);
+            cart.removedIds = new HashSet<>();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(List<FlushEntry> entries) {
+        List<SqlParameterSource> deletes = new ArrayList<>();
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (FlushEntry entry : entries) {
+            entry.removedIds().forEach(id -> deletes.add(new MapSqlParameterSource("id", id)));
+            for (Cart line : entry.lines()) {
+                rows.add(new MapSqlParameterSource("id", line.getId())
+                        .addValue("userId", entry.userId())
+                        .addValue("plantId", line.getPlant() != null ? line.getPlant().getId() : null)
+                        .addValue("potId", line.getPot() != null ? line.getPot().getId() : null)
+                        .addValue("planId", line.getSubscriptionPlan() != null ? line.getSubscriptionPlan().getId() : null)
+                        .addValue("price", line.getPrice())
+                        .addValue("amount", line.getAmount())
+                        .addValue("subscription", line.isSubscription())
+                        .addValue("version", line.getVersion()));
+            }
+        }
+        // Deletes go first so a removed line never blocks a re-added one on the unique indexes
+        flushTransaction.executeWithoutResult(status -> {
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_LINE, deletes.toArray(SqlParameterSource[]::new));
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(WRITE_LINE, rows.toArray(SqlParameterSource[]::new));
+            }
+        });
+    }
+
+    private void markFlushed(FlushEntry entry) {
+        ReentrantLock lock = stripeFor(entry.userId());
+        lock.lock();
+        try {
+            UserCart cart = carts.get(entry.userId());
+            if (cart != null) {
+                cart.flushedVersion = Math.max(cart.flushedVersion, entry.version());
+                cart.failedFlushes = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Puts a failed cart back for the next flush. A cart that keeps failing is given up on: its
+    // unwritten changes are dropped and the next access reloads it from the database, instead of
+    // it being retried and logged on every flush for as long as the process runs.
+    private void restore(FlushEntry entry, RuntimeException error) {
+        Integer userId = entry.userId();
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                return;
+            }
+            cart.failedFlushes++;
+            if (cart.failedFlushes < maxFailedFlushes) {
+                logger.warn("Failed to flush cart of user {} (attempt {}), retrying on the next flush: {}",
+                        userId, cart.failedFlushes, error.getMessage());
+                cart.removedIds.addAll(entry.removedIds());
+                dirtyUsers.add(userId);
+                return;
+            }
+            logger.error("Dropping unwritten changes to the cart of user {} after {} failed flushes, reloading it from the database",
+                    userId, cart.failedFlushes, error);
+            carts.remove(userId);
+            cart.lines.forEach(line -> lineOwners.remove(line.getId()));
+            dirtyUsers.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forget carts that are fully written and have not been used for a while
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMillis;
+        for (Integer userId : carts.keySet()) {
+            ReentrantLock lock = stripeFor(userId);
+            lock.lock();
+            try {
+                UserCart cart = carts.get(userId);
+                if (cart != null && !cart.isDirty() && cart.lastAccess < cutoff) {
+                    carts.remove(userId);
+                    cart.lines.forEach(line -> lineOwners.remove(line.getId()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static Cart copyOf(Cart line) {
+        Cart copy = new Cart();
+        copy.setId(line.getId());
+        copy.setUser(line.getUser());
+        copy.setPlant(line.getPlant());
+        copy.setPot(line.getPot());
+        copy.setSubscriptionPlan(line.getSubscriptionPlan());
+        copy.setPrice(line.getPrice());
+        copy.setAmount(line.getAmount());
+        copy.setSubscription(line.isSubscription());
+        copy.setVersion(line.getVersion());
+        return copy;
+    }
+}
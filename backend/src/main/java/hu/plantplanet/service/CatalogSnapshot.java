@@ -0,0 +1,149 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.model.Plants;
+import hu.plantplanet.model.Pots;
+import hu.plantplanet.model.SubscriptionPlan;
+import hu.plantplanet.repository.PlantsRepository;
+import hu.plantplanet.repository.PotRepository;
+import hu.plantplanet.repository.SubscriptionPlanRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+// Read-only copy of the catalog (plants, pots, subscription plans) shared by all services.
+// A new snapshot is loaded when the catalog version moves and swapped in atomically, so
+// readers always see one consistent catalog and never hit the database for lookups.
+// The entities in it are detached and shared between threads: never modify them.
+@Component
+public class CatalogSnapshot {
+
+    private final PlantsRepository plantsRepository;
+    private final PotRepository potRepository;
+    private final SubscriptionPlanRepository subscriptionPlanRepository;
+    private final CatalogVersion catalogVersion;
+
+    private final AtomicReference<Data> current = new AtomicReference<>();
+
+    public CatalogSnapshot(PlantsRepository plantsRepository, PotRepository potRepository,
+                           SubscriptionPlanRepository subscriptionPlanRepository, CatalogVersion catalogVersion) {
+        this.plantsRepository = plantsRepository;
+        this.potRepository = potRepository;
+        this.subscriptionPlanRepository = subscriptionPlanRepository;
+        this.catalogVersion = catalogVersion;
+    }
+
+    public record Data(long version,
+                       List<Plants> plants, IdTable<Plants> plantsById,
+                       List<Pots> pots, IdTable<Pots> potsById,
+                       List<SubscriptionPlan> plans, IdTable<SubscriptionPlan> plansById) {
+
+        public Optional<Plants> plant(long id) {
+            return Optional.ofNullable(plantsById.get(id));
+        }
+
+        public Optional<Pots> pot(long id) {
+            return Optional.ofNullable(potsById.get(id));
+        }
+
+        public Optional<SubscriptionPlan> plan(long id) {
+            return Optional.ofNullable(plansById.get(id));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        data();
+    }
+
+    // The snapshot for the current catalog version; callers doing several lookups
+    // should take it once so they all see the same catalog
+    public Data data() {
+        long version = catalogVersion.current();
+        Data data = current.get();
+        if (data != null && data.version() == version) {
+            return data;
+        }
+        synchronized (this) {
+            data = current.get();
+            if (data == null || data.version() != version) {
+                data = load(version);
+                current.set(data);
+            }
+            return data;
+        }
+    }
+
+    public List<Plants> plants() {
+        return data().plants();
+    }
+
+    public Optional<Plants> plant(long id) {
+        return data().plant(id);
+    }
+
+    public List<Pots> pots() {
+        return data().pots();
+    }
+
+    public Optional<Pots> pot(long id) {
+        return data().pot(id);
+    }
+
+    public List<SubscriptionPlan> plans() {
+        return data().plans();
+    }
+
+    public Optional<SubscriptionPlan> plan(long id) {
+        return data().plan(id);
+    }
+
+    private Data load(long version) {
+        List<Plants> plants = sorted(plantsRepository.findAll(), Plants::getId);
+        List<Pots> pots = sorted(potRepository.findAll(), Pots::getId);
+        List<SubscriptionPlan> plans = sorted(subscriptionPlanRepository.findAll(), SubscriptionPlan::getId);
+        return new Data(version,
+                plants, new IdTable<>(plants, Plants::getId),
+                pots, new IdTable<>(pots, Pots::getId),
+                plans, new IdTable<>(plans, SubscriptionPlan::getId));
+    }
+
+    private static <T> List<T> sorted(List<T> rows, Function<T, ? extends Number> id) {
+        return rows.stream().sorted(Comparator.comparingLong(row -> id.apply(row).longValue())).toList();
+    }
+
+    // Sorted primitive keys with a parallel value array: no boxing on lookup
+    public static final class IdTable<T> {
+        private final long[] keys;
+        private final Object[] values;
+
+        IdTable(List<T> rows, Function<T, ? extends Number> id) {
+            this.keys = new long[rows.size()];
+            this.values = new Object[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                keys[i] = id.apply(rows.get(i)).longValue();
+                values[i] = rows.get(i);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(long id) {
+            int position = Arrays.binarySearch(keys, id);
+            return position >= 0 ? (T) values[position] : null;
+        }
+
+        public long[] keys() {
+            return keys.clone();
+        }
+
+        public int size() {
+            return keys.length;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import hu.plantplanet.model.Users;
 import hu.plantplanet.model.Plants;
 import hu.plantplanet.model.Comments;
 import hu.plantplanet.repository.UsersRepository;
-import hu.plantplanet.repository.PlantsRepository;
 import hu.plantplanet.repository.CommentRepository;
 import org.springframework.stereotype.Service;
 
@@ -16,12 +15,12 @@ import java.util.stream.Collectors;
 public class CommentService {
 
     private final UsersRepository usersRepository;
-    private final PlantsRepository plantsRepository;
+    private final CatalogSnapshot catalogSnapshot;
     private final CommentRepository commentRepository;
 
-    public CommentService(UsersRepository usersRepository, PlantsRepository plantsRepository, CommentRepository commentRepository) {
+    public CommentService(UsersRepository usersRepository, CatalogSnapshot catalogSnapshot, CommentRepository commentRepository) {
         this.usersRepository = usersRepository;
-        this.plantsRepository = plantsRepository;
+        this.catalogSnapshot = catalogSnapshot;
         this.commentRepository = commentRepository;
     }
 
@@ -43,7 +42,7 @@ public class CommentService {
 
     public Comments addComment(Integer userId, Integer plantId, String title, String commentText, int rating, String profilePicture) {
         Users user = usersRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-        Plants plant = plantsRepository.findById(plantId).orElseThrow(() -> new RuntimeException("Plant not found"));
+        Plants plant = catalogSnapshot.plant(plantId).orElseThrow(() -> new RuntimeException("Plant not found"));
 
         Comments comment = new Comments();
         comment.setUser(user);
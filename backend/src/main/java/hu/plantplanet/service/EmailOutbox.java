@@ -0,0 +1,109 @@
+package hu.plantplanet.service;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// The email_outbox table. Writes join the caller's transaction, so a queued email commits or
+// rolls back together with the business change that produced it.
+@Component
+public class EmailOutbox {
+
+    private static final String INSERT =
+            "INSERT INTO email_outbox (recipient, subject, body, html) " +
+            "VALUES (:recipient, :subject, :body, :html)";
+
+    // Due rows are leased to the caller by pushing next_attempt_at past the lease; a worker that
+    // dies mid-send leaves the row to be claimed again once the lease runs out. Every claim counts
+    // as an attempt, so a send that hangs past its lease still uses up the row's retries.
+    private static final String CLAIM =
+            "UPDATE email_outbox SET status = 'SENDING', next_attempt_at = :leaseUntil, attempts = attempts + 1 " +
+            "WHERE id IN (" +
+            "SELECT id FROM email_outbox " +
+            "WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now AND attempts < :maxAttempts " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, recipient, subject, body, html, attempts";
+
+    // Rows whose last allowed attempt never reported back before its lease ran out
+    private static final String FAIL_ABANDONED =
+            "UPDATE email_outbox SET status = 'FAILED', last_error = 'Lease expired on the last attempt' " +
+            "WHERE status = 'SENDING' AND next_attempt_at <= :now AND attempts >= :maxAttempts";
+
+    private static final String MARK_SENT =
+            "UPDATE email_outbox SET status = 'SENT', sent_at = CURRENT_TIMESTAMP, last_error = NULL " +
+            "WHERE id IN (:ids)";
+
+    private static final String RESCHEDULE =
+            "UPDATE email_outbox SET status = :status, " +
+            "next_attempt_at = :nextAttemptAt, last_error = :error WHERE id = :id";
+
+    private static final String PURGE_SENT =
+            "DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < :cutoff";
+
+    private static final String PURGE_FAILED =
+            "DELETE FROM email_outbox WHERE status = 'FAILED' AND created_at < :cutoff";
+
+    // attempts includes the current one
+    public record Email(long id, String recipient, String subject, String body, boolean html, int attempts) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public EmailOutbox(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void enqueue(String recipient, String subject, String body, boolean html) {
+        jdbcTemplate.update(INSERT, new MapSqlParameterSource("recipient", recipient)
+                .addValue("subject", subject)
+                .addValue("body", body)
+                .addValue("html", html));
+    }
+
+    public List<Email> claim(int limit, int maxAttempts, LocalDateTime now, LocalDateTime leaseUntil) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit)
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("now", Timestamp.valueOf(now))
+                .addValue("leaseUntil", Timestamp.valueOf(leaseUntil));
+        return jdbcTemplate.query(CLAIM, params, (rs, rowNum) -> new Email(
+                rs.getLong("id"),
+                rs.getString("recipient"),
+                rs.getString("subject"),
+                rs.getString("body"),
+                rs.getBoolean("html"),
+                rs.getInt("attempts")));
+    }
+
+    public int failAbandoned(int maxAttempts, LocalDateTime now) {
+        return jdbcTemplate.update(FAIL_ABANDONED, new MapSqlParameterSource("maxAttempts", maxAttempts)
+                .addValue("now", Timestamp.valueOf(now)));
+    }
+
+    public void markSent(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(MARK_SENT, new MapSqlParameterSource("ids", ids));
+        }
+    }
+
+    // Back to PENDING for another try at nextAttemptAt, or FAILED once retries are used up
+    public void reschedule(long id, LocalDateTime nextAttemptAt, boolean failed, String error) {
+        jdbcTemplate.update(RESCHEDULE, new MapSqlParameterSource("id", id)
+                .addValue("status", failed ? "FAILED" : "PENDING")
+                .addValue("nextAttemptAt", Timestamp.valueOf(nextAttemptAt))
+                .addValue("error", error == null ? null : error.substring(0, Math.min(error.length(), 1000))));
+    }
+
+    public int purgeSent(LocalDateTime cutoff) {
+        return jdbcTemplate.update(PURGE_SENT, new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+
+    // Failed rows are kept longer than sent ones, so they can be looked into, but not forever
+    public int purgeFailed(LocalDateTime cutoff) {
+        return jdbcTemplate.update(PURGE_FAILED, new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+}
@@ -0,0 +1,159 @@
+package hu.plantplanet.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Drains the email outbox on a fixed pool of sender threads, each sending one batch of emails per
+// SMTP connection. Each poll claims only as many rows as there are free slots, so a slow SMTP
+// server backs up the table instead of memory.
+@Component
+@Lazy(false)
+public class EmailOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private final EmailOutbox outbox;
+    private final EmailService emailService;
+    private final ExecutorService senders;
+    private final Semaphore slots;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffBaseSeconds;
+    private final long backoffMaxSeconds;
+    private final long leaseSeconds;
+    private final int retentionDays;
+    private final int failedRetentionDays;
+
+    public EmailOutboxWorker(EmailOutbox outbox,
+                             EmailService emailService,
+                             @Value("${email.outbox.workers:4}") int workers,
+                             @Value("${email.smtp.batch-size:20}") int batchSize,
+                             @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                             @Value("${email.outbox.backoff-base-seconds:30}") long backoffBaseSeconds,
+                             @Value("${email.outbox.backoff-max-seconds:3600}") long backoffMaxSeconds,
+                             @Value("${email.outbox.lease-seconds:120}") long leaseSeconds,
+                             @Value("${email.outbox.retention-days:14}") int retentionDays,
+                             @Value("${email.outbox.failed-retention-days:90}") int failedRetentionDays) {
+        this.outbox = outbox;
+        this.emailService = emailService;
+        int threads = Math.max(1, workers);
+        this.senders = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("email-outbox-"));
+        this.batchSize = Math.max(1, batchSize);
+        // One batch in flight per thread; anything more would sit in memory under a running lease
+        this.slots = new Semaphore(threads * this.batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseSeconds = Math.max(1, backoffBaseSeconds);
+        this.backoffMaxSeconds = Math.max(this.backoffBaseSeconds, backoffMaxSeconds);
+        this.leaseSeconds = leaseSeconds;
+        this.retentionDays = retentionDays;
+        this.failedRetentionDays = failedRetentionDays;
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void poll() {
+        int free = slots.availablePermits();
+        if (free == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int abandoned = outbox.failAbandoned(maxAttempts, now);
+        if (abandoned > 0) {
+            logger.error("Giving up on {} emails whose last attempt did not finish within its lease", abandoned);
+        }
+        List<EmailOutbox.Email> claimed = outbox.claim(free, maxAttempts, now, now.plusSeconds(leaseSeconds));
+        for (int from = 0; from < claimed.size(); from += batchSize) {
+            List<EmailOutbox.Email> batch = claimed.subList(from, Math.min(from + batchSize, claimed.size()));
+            slots.acquireUninterruptibly(batch.size());
+            senders.execute(() -> {
+                try {
+                    deliver(batch);
+                } finally {
+                    slots.release(batch.size());
+                }
+            });
+        }
+    }
+
+    private void deliver(List<EmailOutbox.Email> batch) {
+        Map<Long, Exception> failures;
+        try {
+            failures = emailService.deliver(batch);
+        } catch (RuntimeException e) {
+            failures = new HashMap<>();
+            for (EmailOutbox.Email email : batch) {
+                failures.put(email.id(), e);
+            }
+        }
+
+        List<Long> sent = new ArrayList<>(batch.size());
+        for (EmailOutbox.Email email : batch) {
+            Exception error = failures.get(email.id());
+            if (error == null) {
+                sent.add(email.id());
+            } else {
+                retryLater(email, error);
+            }
+        }
+        outbox.markSent(sent);
+    }
+
+    // The claim already counted this attempt
+    private void retryLater(EmailOutbox.Email email, Exception error) {
+        int attempts = email.attempts();
+        boolean failed = attempts >= maxAttempts;
+        outbox.reschedule(email.id(), LocalDateTime.now().plusSeconds(backoffSeconds(attempts)),
+                failed, error.getMessage());
+        if (failed) {
+            logger.error("Giving up on email {} to {} after {} attempts", email.id(), email.recipient(), attempts, error);
+        } else {
+            logger.warn("Email {} to {} failed (attempt {}), retrying later: {}",
+                    email.id(), email.recipient(), attempts, error.getMessage());
+        }
+    }
+
+    // Exponential backoff capped at backoff-max-seconds, with jitter so a recovered SMTP server
+    // is not hit by every failed email at once
+    long backoffSeconds(int attempts) {
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, backoffMaxSeconds);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    @Scheduled(cron = "${email.outbox.purge-cron:0 15 4 * * *}")
+    public void purgeSent() {
+        int purged = outbox.purgeSent(LocalDateTime.now().minusDays(retentionDays));
+        if (purged > 0) {
+            logger.info("Purged {} sent emails older than {} days", purged, retentionDays);
+        }
+        int purgedFailed = outbox.purgeFailed(LocalDateTime.now().minusDays(failedRetentionDays));
+        if (purgedFailed > 0) {
+            logger.info("Purged {} failed emails older than {} days", purgedFailed, failedRetentionDays);
+        }
+    }
+
+    // Claimed rows that never finish are picked up again once their lease expires
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        senders.shutdown();
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -4,102 +4,170 @@ import hu.plantplanet.model.Plants;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class EmailService {
 
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private EmailOutbox outbox;
+
+    @Value("${email.smtp.batch-size:20}")
+    private int batchSize;
+
+    @Value("${email.smtp.max-per-second:0}")
+    private int maxPerSecond;
+
+    private long nextSendNanos;
+
+    // The send* methods only queue the email in the outbox, inside the caller's transaction;
+    // EmailOutboxWorker hands it to deliver() once that transaction has committed
+
     public void sendReminder(String to, String plantName) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("Time to repot your plant!");
-        message.setText("Hey! It's time to repot your " + plantName + ".");
-        mailSender.send(message);
+        outbox.enqueue(to, "Time to repot your plant!", "Hey! It's time to repot your " + plantName + ".", false);
+    }
+
+    public void sendRepotReminder(String to, String plantName) {
+        String text = String.format(
+                "Hello,\n\n" +
+                        "It's time to repot your %s that you purchased from us.\n\n" +
+                        "Happy gardening!\n" +
+                        "Your Plant Store Team",
+                plantName
+        );
+        outbox.enqueue(to, "Time to repot your " + plantName, text, false);
     }
 
     public void sendOrderConfirmation(String to, String customerName, String orderDetails) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject("Thank you for your order!");
-
-            String htmlContent = "<html><body>" +
-                    "<h2>Dear " + customerName + ",</h2>" +
-                    "<p>Thank you for your order at PlantPlanet!</p>" +
-                    "<h3>Order Details:</h3>" +
-                    "<pre>" + orderDetails + "</pre>" +
-                    "<p>We'll process your order shortly.</p>" +
-                    "<p>Best regards,<br/>The PlantPlanet Team</p>" +
-                    "</body></html>";
-
-            helper.setText(htmlContent, true);
-
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            // Handle exception or log it
-            throw new RuntimeException("Failed to send email", e);
-        }
+        String htmlContent = "<html><body>" +
+                "<h2>Dear " + customerName + ",</h2>" +
+                "<p>Thank you for your order at PlantPlanet!</p>" +
+                "<h3>Order Details:</h3>" +
+                "<pre>" + orderDetails + "</pre>" +
+                "<p>We'll process your order shortly.</p>" +
+                "<p>Best regards,<br/>The PlantPlanet Team</p>" +
+                "</body></html>";
+
+        outbox.enqueue(to, "Thank you for your order!", htmlContent, true);
     }
 
     public void sendPlantDeliveryEmail(String to, String username, Plants plant) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setTo(to);
-            helper.setSubject("Your Mystery Plant Delivery!");
-
-            String htmlContent = "<html><body>" +
-                    "<h2>Hello " + username + ",</h2>" +
-                    "<p>Your mystery plant has been selected!</p>" +
-                    "<div style='border: 1px solid #ddd; padding: 15px; margin: 10px 0;'>" +
-                    "<h3>" + plant.getName() + "</h3>" +
-                    "<p><strong>Care Instructions are included in your package</strong> " + "</p>" +
-                    "</div>" +
-                    "<p>We hope you enjoy your new green friend!</p>" +
-                    "<p>Best regards,<br/>The PlantPlanet Team</p>" +
-                    "</body></html>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send plant delivery email", e);
-        }
+        String htmlContent = "<html><body>" +
+                "<h2>Hello " + username + ",</h2>" +
+                "<p>Your mystery plant has been selected!</p>" +
+                "<div style='border: 1px solid #ddd; padding: 15px; margin: 10px 0;'>" +
+                "<h3>" + plant.getName() + "</h3>" +
+                "<p><strong>Care Instructions are included in your package</strong> " + "</p>" +
+                "</div>" +
+                "<p>We hope you enjoy your new green friend!</p>" +
+                "<p>Best regards,<br/>The PlantPlanet Team</p>" +
+                "</body></html>";
+
+        outbox.enqueue(to, "Your Mystery Plant Delivery!", htmlContent, true);
     }
 
     public void sendCareTipsEmail(String to, String username) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setTo(to);
-            helper.setSubject("Your Monthly Plant Care Tips");
-
-            String htmlContent = "<html><body>" +
-                    "<h2>Hello " + username + ",</h2>" +
-                    "<p>Here are your monthly plant care tips:</p>" +
-                    "<ul>" +
-                    "<li>Check soil moisture regularly</li>" +
-                    "<li>Rotate plants for even growth</li>" +
-                    "<li>Wipe leaves to remove dust</li>" +
-                    "<li>Check for pests</li>" +
-                    "</ul>" +
-                    "<p>Happy planting!</p>" +
-                    "<p>Best regards,<br/>The PlantPlanet Team</p>" +
-                    "</body></html>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send care tips email", e);
+        String htmlContent = "<html><body>" +
+                "<h2>Hello " + username + ",</h2>" +
+                "<p>Here are your monthly plant care tips:</p>" +
+                "<ul>" +
+                "<li>Check soil moisture regularly</li>" +
+                "<li>Rotate plants for even growth</li>" +
+                "<li>Wipe leaves to remove dust</li>" +
+                "<li>Check for pests</li>" +
+                "</ul>" +
+                "<p>Happy planting!</p>" +
+                "<p>Best regards,<br/>The PlantPlanet Team</p>" +
+                "</body></html>";
+
+        outbox.enqueue(to, "Your Monthly Plant Care Tips", htmlContent, true);
+    }
+
+    // Sends the emails over as few SMTP sessions as possible: every batch of email.smtp.batch-size
+    // messages goes out on one connection, paced to email.smtp.max-per-second. Returns the emails
+    // that could not be sent, by outbox id; everything else was accepted by the server.
+    public Map<Long, Exception> deliver(List<EmailOutbox.Email> emails) {
+        Map<Long, Exception> failures = new HashMap<>();
+        Map<MimeMessage, Long> ids = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        for (EmailOutbox.Email email : emails) {
+            try {
+                MimeMessage message = toMimeMessage(email);
+                ids.put(message, email.id());
+                messages.add(message);
+            } catch (MessagingException e) {
+                failures.put(email.id(), e);
+            }
+        }
+
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < messages.size(); from += size) {
+            List<MimeMessage> batch = messages.subList(from, Math.min(from + size, messages.size()));
+            pace(batch.size());
+            try {
+                mailSender.send(batch.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                // The session stays open past a rejected message, so only the listed ones failed
+                if (e.getFailedMessages().isEmpty()) {
+                    batch.forEach(message -> failures.put(ids.get(message), e));
+                }
+                e.getFailedMessages().forEach((message, cause) -> {
+                    Long id = ids.get(message);
+                    if (id != null) {
+                        failures.put(id, cause);
+                    }
+                });
+            } catch (MailException e) {
+                batch.forEach(message -> failures.put(ids.get(message), e));
+            }
+        }
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox.Email email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.html(), "UTF-8");
+
+        helper.setTo(email.recipient());
+        helper.setSubject(email.subject());
+        helper.setText(email.body(), email.html());
+        return message;
+    }
+
+    // Reserves send slots for the given number of messages and waits until the first one is due,
+    // keeping all sender threads together under the configured rate
+    private void pace(int messages) {
+        if (maxPerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextSendNanos);
+            nextSendNanos = start + messages * 1_000_000_000L / maxPerSecond;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
@@ -0,0 +1,98 @@
+package hu.plantplanet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.plantplanet.dto.image.ImageDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Decodes the JSON "images" columns of plants and subscription plans into typed lists.
+// Entries may be plain URL strings or {"url", "width", "height"} objects. Supabase
+// storage URLs get thumb/medium variants through the storage image render endpoint.
+@Service
+public class ImageService {
+
+    private static final String SUPABASE_OBJECT_PATH = "/storage/v1/object/public/";
+    private static final String SUPABASE_RENDER_PATH = "/storage/v1/render/image/public/";
+
+    private final ObjectMapper objectMapper;
+    private final CatalogVersion catalogVersion;
+    private final int thumbWidth;
+    private final int mediumWidth;
+
+    // Decoded lists keyed by the raw column value, dropped when the catalog changes
+    private record DecodedImages(long version, Map<String, List<ImageDTO>> byJson) {
+    }
+
+    private volatile DecodedImages decoded;
+
+    public ImageService(ObjectMapper objectMapper, CatalogVersion catalogVersion,
+                        @Value("${images.thumb-width:320}") int thumbWidth,
+                        @Value("${images.medium-width:800}") int mediumWidth) {
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
+        this.thumbWidth = thumbWidth;
+        this.mediumWidth = mediumWidth;
+    }
+
+    public List<ImageDTO> decode(String imagesJson) {
+        if (imagesJson == null || imagesJson.isBlank()) {
+            return List.of();
+        }
+        return cache().computeIfAbsent(imagesJson, this::parse);
+    }
+
+    // Thumbnail of the first image, which is all the listing grids show
+    public String thumbnail(String imagesJson) {
+        List<ImageDTO> images = decode(imagesJson);
+        return images.isEmpty() ? null : images.get(0).getThumb();
+    }
+
+    private Map<String, List<ImageDTO>> cache() {
+        long version = catalogVersion.current();
+        DecodedImages current = decoded;
+        if (current == null || current.version() != version) {
+            current = new DecodedImages(version, new ConcurrentHashMap<>());
+            decoded = current;
+        }
+        return current.byJson();
+    }
+
+    private List<ImageDTO> parse(String imagesJson) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(imagesJson);
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+        if (!root.isArray()) {
+            return List.of();
+        }
+        List<ImageDTO> images = new ArrayList<>(root.size());
+        for (JsonNode node : root) {
+            String url = node.isTextual() ? node.asText() : node.path("url").asText(null);
+            if (url == null || url.isBlank()) {
+                continue;
+            }
+            Integer width = node.hasNonNull("width") ? node.get("width").asInt() : null;
+            Integer height = node.hasNonNull("height") ? node.get("height").asInt() : null;
+            images.add(new ImageDTO(url, variant(url, mediumWidth), variant(url, thumbWidth), width, height));
+        }
+        return List.copyOf(images);
+    }
+
+    private String variant(String url, int width) {
+        int path = url.indexOf(SUPABASE_OBJECT_PATH);
+        if (path < 0) {
+            return url;
+        }
+        return url.substring(0, path) + SUPABASE_RENDER_PATH + url.substring(path + SUPABASE_OBJECT_PATH.length())
+                + "?width=" + width + "&resize=contain";
+    }
+}
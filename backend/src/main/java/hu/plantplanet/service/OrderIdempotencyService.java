@@ -0,0 +1,193 @@
+package hu.plantplanet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Runs order creation at most once per client Idempotency-Key and replays the stored response to
+// retries. Completed responses are kept in a bounded LRU in front of the idempotency_key table;
+// duplicates arriving while the first request is still running wait for its result, on this node
+// through a shared future and across nodes on the row lock of the key insert.
+@Service
+@Lazy(false)
+public class OrderIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final String CLAIM =
+            "INSERT INTO idempotency_key (idempotency_key, request_hash) VALUES (:key, :hash) " +
+            "ON CONFLICT (idempotency_key) DO NOTHING";
+    private static final String FIND =
+            "SELECT request_hash, response, created_at FROM idempotency_key WHERE idempotency_key = :key";
+    private static final String STORE_RESPONSE =
+            "UPDATE idempotency_key SET response = :response WHERE idempotency_key = :key";
+    private static final String PURGE =
+            "DELETE FROM idempotency_key WHERE created_at < :cutoff";
+
+    private record Stored(String requestHash, byte[] response, LocalDateTime createdAt) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int ttlHours;
+    private final Map<String, Stored> completed;
+    private final Map<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+
+    public OrderIdempotencyService(NamedParameterJdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   ObjectMapper objectMapper,
+                                   @Value("${orders.idempotency.cache-size:10000}") int cacheSize,
+                                   @Value("${orders.idempotency.ttl-hours:24}") int ttlHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlHours = ttlHours;
+        int maxEntries = Math.max(1, cacheSize);
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Runs the action and returns its JSON response; with a key, a repeat of the same request gets
+    // the first response back instead of a second order. scope keeps the endpoints' keys apart.
+    public byte[] execute(String scope, String idempotencyKey, Object request, Supplier<Object> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return toJson(action.get());
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String key = scope + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        Stored stored = cached(key);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<Stored> mine = new CompletableFuture<>();
+        CompletableFuture<Stored> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            stored = transactionTemplate.execute(status -> claimOrLoad(key, requestHash, action));
+            synchronized (completed) {
+                completed.put(key, stored);
+            }
+            mine.complete(stored);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        return replay(stored, requestHash);
+    }
+
+    // Inside the order transaction: either this request owns the key and runs the action, or the
+    // key was committed by an earlier request and its stored response is returned
+    private Stored claimOrLoad(String key, String requestHash, Supplier<Object> action) {
+        MapSqlParameterSource params = new MapSqlParameterSource("key", key).addValue("hash", requestHash);
+        if (jdbcTemplate.update(CLAIM, params) == 0) {
+            return load(key);
+        }
+        byte[] response = toJson(action.get());
+        jdbcTemplate.update(STORE_RESPONSE, params.addValue("response", new String(response, StandardCharsets.UTF_8)));
+        return new Stored(requestHash, response, LocalDateTime.now());
+    }
+
+    private Stored load(String key) {
+        List<Stored> rows = jdbcTemplate.query(FIND, new MapSqlParameterSource("key", key), (rs, rowNum) -> new Stored(
+                rs.getString("request_hash"),
+                rs.getString("response") == null ? null : rs.getString("response").getBytes(StandardCharsets.UTF_8),
+                rs.getTimestamp("created_at").toLocalDateTime()));
+        if (rows.isEmpty() || rows.get(0).response() == null) {
+            throw new IllegalStateException("Idempotency key has no stored response");
+        }
+        return rows.get(0);
+    }
+
+    private Stored cached(String key) {
+        synchronized (completed) {
+            Stored stored = completed.get(key);
+            if (stored != null && stored.createdAt().isBefore(LocalDateTime.now().minusHours(ttlHours))) {
+                completed.remove(key);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private static byte[] replay(Stored stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+        }
+        return stored.response();
+    }
+
+    private static Stored await(CompletableFuture<Stored> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private byte[] toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize order response", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to hash order request", e);
+        }
+    }
+
+    @Scheduled(cron = "${orders.idempotency.purge-cron:0 45 * * * *}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update(PURGE,
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(LocalDateTime.now().minusHours(ttlHours))));
+        if (purged > 0) {
+            logger.info("Purged {} idempotency keys older than {} hours", purged, ttlHours);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package hu.plantplanet.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps the monthly partitions of orders and order_item (see alter_tables_orders_partition_by_month.sql)
+// in step: partitions for the coming months are created ahead of time, so new orders never fall into
+// the default partition, and partitions older than the retention window are detached and moved to
+// the archive schema, out of every index and query on the live tables.
+@Service
+@Lazy(false)
+public class OrderPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPartitionService.class);
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Range partitions of a table with their bounds as Postgres prints them, e.g.
+    // FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00'); the default partition has no range
+    private static final String PARTITIONS =
+            "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = CAST(? AS regclass)";
+    private static final String IS_PARTITIONED =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('orders'))";
+    private static final Pattern RANGE = Pattern.compile("FROM \\((MINVALUE|'([^']+)')\\) TO \\((MAXVALUE|'([^']+)')\\)");
+
+    private record Partition(String name, LocalDateTime from, LocalDateTime to) {
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return (from == null || from.isBefore(end)) && (to == null || to.isAfter(start));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public OrderPartitionService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${orders.partitions.months-ahead:3}") int monthsAhead,
+                                 @Value("${orders.partitions.retention-months:24}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = Math.max(1, retentionMonths);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    // Never throws: a failure here is logged and retried on the next run, it must not stop the
+    // application from starting
+    @Scheduled(cron = "${orders.partitions.cron:0 0 2 * * *}")
+    public void maintain() {
+        try {
+            // The migration may be applied outside the application, after this version is deployed
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class))) {
+                logger.warn("orders is not partitioned yet, skipping partition maintenance");
+                return;
+            }
+            YearMonth current = YearMonth.now();
+            createPartitions(current, current.plusMonths(monthsAhead));
+            archivePartitions(current.minusMonths(retentionMonths).atDay(1).atStartOfDay());
+        } catch (RuntimeException e) {
+            logger.error("Order partition maintenance failed", e);
+        }
+    }
+
+    // One partition per month from first to last, for both tables, skipping months already covered
+    // (by an earlier run or by the history partition of the migration). Each month is created on its
+    // own, so one failing month, e.g. because the default partition already holds rows for it,
+    // does not keep the later months from being created.
+    void createPartitions(YearMonth first, YearMonth last) {
+        List<Partition> existing = partitions("orders");
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (existing.stream().anyMatch(p -> p.overlaps(start, end))) {
+                continue;
+            }
+            String suffix = month.format(SUFFIX);
+            String range = "FOR VALUES FROM ('" + start.format(BOUND) + "') TO ('" + end.format(BOUND) + "')";
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("CREATE TABLE orders_" + suffix + " PARTITION OF orders " + range);
+                    jdbcTemplate.execute("CREATE TABLE order_item_" + suffix + " PARTITION OF order_item " + range);
+                });
+                logger.info("Created order partitions for {}", month);
+            } catch (RuntimeException e) {
+                logger.error("Failed to create order partitions for {}; its orders stay in the default partition", month, e);
+            }
+        }
+    }
+
+    // Detaches every partition that ends on or before the cutoff. order_item goes first and drops its
+    // foreign key to orders, otherwise the orders partition could not be detached under it.
+    void archivePartitions(LocalDateTime cutoff) {
+        for (Partition partition : partitions("orders")) {
+            if (partition.to() == null || partition.to().isAfter(cutoff)) {
+                continue;
+            }
+            String suffix = partition.name().substring("orders_".length());
+            String itemPartition = "order_item_" + suffix;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("ALTER TABLE order_item DETACH PARTITION " + itemPartition);
+                    jdbcTemplate.execute("ALTER TABLE " + itemPartition + " DROP CONSTRAINT IF EXISTS fk_order_item_order");
+                    jdbcTemplate.execute("ALTER TABLE orders DETACH PARTITION " + partition.name());
+                    jdbcTemplate.execute("ALTER TABLE " + itemPartition + " SET SCHEMA archive");
+                    jdbcTemplate.execute("ALTER TABLE " + partition.name() + " SET SCHEMA archive");
+                });
+                logger.info("Archived order partitions {} and {} (orders before {})", partition.name(), itemPartition, partition.to());
+            } catch (RuntimeException e) {
+                logger.error("Failed to archive order partitions {} and {}", partition.name(), itemPartition, e);
+            }
+        }
+    }
+
+    private List<Partition> partitions(String table) {
+        List<Partition> partitions = new ArrayList<>();
+        jdbcTemplate.query(PARTITIONS, rs -> {
+            Matcher matcher = RANGE.matcher(rs.getString(2));
+            if (matcher.find()) {
+                partitions.add(new Partition(rs.getString(1), parseBound(matcher.group(2)), parseBound(matcher.group(4))));
+            }
+        }, table);
+        return partitions;
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        if (value == null) {
+            return null;
+        }
+        // Bounds print as 'yyyy-MM-dd HH:mm:ss', with fractional seconds if there are any
+        return LocalDateTime.parse(value.substring(0, Math.min(value.length(), 19)), BOUND);
+    }
+}
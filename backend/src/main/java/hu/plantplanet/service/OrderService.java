@@ -3,27 +3,117 @@ package hu.plantplanet.service;
 import hu.plantplanet.dto.email.OrderEmailDTO;
 import hu.plantplanet.dto.order.*;
 import hu.plantplanet.model.*;
+import hu.plantplanet.repository.CartLineView;
+import hu.plantplanet.repository.OrderKey;
 import hu.plantplanet.repository.OrderRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final EmailService emailService;
+    private final CartService cartService;
+    private final CatalogSnapshot catalogSnapshot;
 
-    public OrderService(OrderRepository orderRepository, EmailService emailService) {
+    public OrderService(OrderRepository orderRepository, EmailService emailService, CartService cartService,
+                        CatalogSnapshot catalogSnapshot) {
         this.orderRepository = orderRepository;
         this.emailService = emailService;
+        this.cartService = cartService;
+        this.catalogSnapshot = catalogSnapshot;
+    }
+
+    // Turn the user's cart into an order priced from the catalog, and empty the cart, in one transaction
+    @Transactional
+    public Order checkout(Integer userId, CheckoutRequest request) {
+        List<CartLineView> lines = cartService.takeCartForCheckout(userId);
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
+
+        Order order = new Order();
+        order.setName(request.getName());
+        order.setEmail(request.getEmail());
+        order.setAddress(request.getAddress());
+        order.setCity(request.getCity());
+        order.setZipcode(request.getZipcode());
+        order.setPhoneNumber(request.getPhoneNumber());
+        order.setPaymentMethod(request.getPaymentMethod());
+        order.setOrderDate(LocalDateTime.now());
+        order.setUserId(userId);
+
+        Users user = new Users();
+        user.setId(userId);
+
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        BigDecimal total = BigDecimal.ZERO;
+        List<OrderItem> orderItems = new ArrayList<>(lines.size());
+        for (CartLineView line : lines) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setUser(user);
+            item.setAmount(line.getAmount());
+
+            BigDecimal unitPrice;
+            if (line.getSubscriptionPlanId() != null) {
+                SubscriptionPlan plan = catalog.plan(line.getSubscriptionPlanId())
+                        .orElseThrow(() -> new RuntimeException("Subscription plan not found"));
+                item.setSubscription(true);
+                item.setSubscriptionPlan(plan);
+                unitPrice = plan.getPrice();
+            } else {
+                Plants plant = catalog.plant(line.getPlantId())
+                        .orElseThrow(() -> new RuntimeException("Plant not found"));
+                item.setPlant(plant);
+                unitPrice = plant.getPrice();
+                if (line.getPotId() != null) {
+                    Pots pot = catalog.pot(line.getPotId())
+                            .orElseThrow(() -> new RuntimeException("Pot not found"));
+                    item.setPot(pot);
+                    unitPrice = unitPrice.add(pot.getPrice());
+                }
+            }
+            item.setPrice(unitPrice.doubleValue());
+            total = total.add(unitPrice.multiply(BigDecimal.valueOf(line.getAmount())));
+            orderItems.add(item);
+        }
+        order.setTotalPrice(total);
+        order.setOrderItems(orderItems);
+
+        // Sequence ids let Hibernate send the order and all its items as JDBC batches
+        Order savedOrder = orderRepository.save(order);
+        sendOrderConfirmationEmail(savedOrder);
+        return savedOrder;
     }
 
+    // userId is the logged in user placing the order, or null for a guest order, which then shows
+    // up in no one's order history
     @Transactional
-    public Order placeOrder(OrderDTO orderDto) {
+    public Order placeOrder(OrderDTO orderDto, Integer userId) {
+        // Carts held in memory are written out before they turn into an order
+        orderDto.getOrderItems().stream()
+                .map(OrderItemDTO::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(itemUserId -> cartService.flushPendingChanges(Math.toIntExact(itemUserId)));
+
         Order order = new Order();
         order.setName(orderDto.getName());
         order.setEmail(orderDto.getEmail());
@@ -33,6 +123,7 @@ public class OrderService {
         order.setPhoneNumber(orderDto.getPhoneNumber());
         order.setPaymentMethod(orderDto.getPaymentMethod());
         order.setTotalPrice(orderDto.getTotalPrice());
+        order.setUserId(userId);
         order.setOrderDate(orderDto.getOrderDate() != null ?
                 orderDto.getOrderDate() : LocalDateTime.now());
 
@@ -77,6 +168,89 @@ public class OrderService {
         return savedOrder;
     }
 
+    // Order history of one customer, newest first
+    @Transactional(readOnly = true)
+    public OrderPageResponse getOrdersByUser(Integer userId, String cursor, Integer size) {
+        int limit = pageSize(size);
+        OrderCursor after = OrderCursor.decode(cursor);
+        List<OrderKey> keys = after == null
+                ? orderRepository.findPageIdsByUserId(userId, limit + 1)
+                : orderRepository.findPageIdsByUserIdBefore(userId, after.orderDate(), after.orderId(), limit + 1);
+        return loadPage(keys, limit);
+    }
+
+    // Every order, newest first
+    @Transactional(readOnly = true)
+    public OrderPageResponse getOrders(String cursor, Integer size) {
+        int limit = pageSize(size);
+        OrderCursor after = OrderCursor.decode(cursor);
+        List<OrderKey> keys = after == null
+                ? orderRepository.findPageIds(limit + 1)
+                : orderRepository.findPageIdsBefore(after.orderDate(), after.orderId(), limit + 1);
+        return loadPage(keys, limit);
+    }
+
+    private int pageSize(Integer size) {
+        return size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // keys holds one row more than the page when there is a next page; the orders themselves come
+    // back from a single fetch-join query and are put back into the key order
+    private OrderPageResponse loadPage(List<OrderKey> keys, int limit) {
+        List<OrderKey> page = keys.size() > limit ? keys.subList(0, limit) : keys;
+        if (page.isEmpty()) {
+            return new OrderPageResponse(List.of(), null);
+        }
+        // Newest first, so the first key has the latest date and the last one the earliest
+        LocalDateTime to = page.get(0).getOrderDate();
+        LocalDateTime from = page.get(page.size() - 1).getOrderDate();
+        List<Long> pageIds = page.stream().map(OrderKey::getOrderId).toList();
+
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsByOrderIdIn(pageIds, from, to)) {
+            byId.put(order.getOrderId(), order);
+        }
+        List<OrderDTO> items = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            Order order = byId.get(id);
+            if (order != null) {
+                items.add(OrderDTO.fromOrder(order));
+            }
+        }
+        String nextCursor = null;
+        if (keys.size() > limit && !items.isEmpty()) {
+            OrderDTO last = items.get(items.size() - 1);
+            nextCursor = new OrderCursor(last.getOrderDate(), last.getOrderId()).encode();
+        }
+        return new OrderPageResponse(items, nextCursor);
+    }
+
+    // Position after the last order of a page: its date and id, Base64 encoded for the client
+    private record OrderCursor(LocalDateTime orderDate, Long orderId) {
+
+        String encode() {
+            String raw = orderDate + "|" + orderId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static OrderCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+
     private void sendOrderConfirmationEmail(Order order) {
         StringBuilder orderDetails = new StringBuilder();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
@@ -0,0 +1,63 @@
+package hu.plantplanet.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import hu.plantplanet.model.Plants;
+import hu.plantplanet.repository.PlantsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes the catalog as newline-delimited JSON straight from a database cursor.
+// Every row is detached once written, so memory use does not grow with the table.
+@Service
+public class PlantExportService {
+
+    private final PlantsRepository plantsRepository;
+    private final ObjectWriter writer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public PlantExportService(PlantsRepository plantsRepository, ObjectMapper objectMapper) {
+        this.plantsRepository = plantsRepository;
+        this.writer = objectMapper.writerFor(Plants.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    // Whether an export request gets the gzip body: asked for explicitly or accepted by the client
+    public static boolean wantsGzip(boolean gzip, String acceptEncoding) {
+        return gzip || (acceptEncoding != null && acceptEncoding.contains("gzip"));
+    }
+
+    // Returns the number of rows written; the caller owns (and closes) the stream
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Plants> plants = plantsRepository.streamAll();
+             JsonGenerator generator = writer.createGenerator(out)) {
+            Iterator<Plants> rows = plants.iterator();
+            while (rows.hasNext()) {
+                Plants plant = rows.next();
+                writer.writeValue(generator, plant);
+                entityManager.detach(plant);
+                count++;
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,80 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.model.Plants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Picks random plants from a cached id array over the catalog snapshot
+@Service
+public class PlantSamplerService {
+
+    public static final int MAX_COUNT = 50;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    private record IdArray(long version, int[] ids) {
+    }
+
+    private volatile IdArray idArray;
+
+    // Up to count distinct random plants, skipping the excluded ids, in random order
+    public List<Plants> randomPlants(int count, Collection<Integer> exclude) {
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        int[] ids = sampleIds(catalog, count, exclude);
+        List<Plants> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            catalog.plant(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    public Optional<Plants> randomPlant() {
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        int[] ids = sampleIds(catalog, 1, Set.of());
+        return ids.length == 0 ? Optional.empty() : catalog.plant(ids[0]);
+    }
+
+    // Rejection sampling over the id array: expected O(count) while count + exclusions
+    // is well below the catalog size, and a partial shuffle of what is left otherwise
+    private int[] sampleIds(CatalogSnapshot.Data catalog, int count, Collection<Integer> exclude) {
+        int[] ids = idsOf(catalog);
+        Set<Integer> excluded = exclude == null ? Set.of() : new HashSet<>(exclude);
+        int wanted = Math.max(0, Math.min(count, MAX_COUNT));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if ((wanted + excluded.size()) * 2 < ids.length) {
+            Set<Integer> picked = new LinkedHashSet<>();
+            while (picked.size() < wanted) {
+                int id = ids[random.nextInt(ids.length)];
+                if (!excluded.contains(id)) {
+                    picked.add(id);
+                }
+            }
+            return picked.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int[] remaining = Arrays.stream(ids).filter(id -> !excluded.contains(id)).toArray();
+        int take = Math.min(wanted, remaining.length);
+        for (int i = 0; i < take; i++) {
+            int j = i + random.nextInt(remaining.length - i);
+            int swap = remaining[i];
+            remaining[i] = remaining[j];
+            remaining[j] = swap;
+        }
+        return Arrays.copyOf(remaining, take);
+    }
+
+    private int[] idsOf(CatalogSnapshot.Data catalog) {
+        IdArray current = idArray;
+        if (current == null || current.version() != catalog.version()) {
+            int[] ids = catalog.plants().stream().mapToInt(Plants::getId).toArray();
+            current = new IdArray(catalog.version(), ids);
+            idArray = current;
+        }
+        return current.ids();
+    }
+}
@@ -0,0 +1,220 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.plant.PlantSummaryDTO;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// Immutable inverted index over plant text. Terms are accent-folded and lower-cased;
+// lookups match exact terms, term prefixes and (for longer terms) one typo, using a
+// precomputed single-deletion table so no vocabulary scan is needed per keystroke.
+public final class PlantSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float TYPO_FACTOR = 0.4f;
+    private static final int MIN_TYPO_LENGTH = 4;
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+
+    private final PlantSummaryDTO[] docs;
+    private final String[] terms;        // sorted vocabulary
+    private final int[][] postings;      // term -> doc positions
+    private final float[][] weights;     // term -> weight of the term in each posted doc
+    private final Map<String, int[]> deletions; // single-deletion variant -> term positions
+
+    private PlantSearchIndex(PlantSummaryDTO[] docs, String[] terms, int[][] postings, float[][] weights,
+                             Map<String, int[]> deletions) {
+        this.docs = docs;
+        this.terms = terms;
+        this.postings = postings;
+        this.weights = weights;
+        this.deletions = deletions;
+    }
+
+    public record Document(PlantSummaryDTO summary, String name, String description) {
+    }
+
+    public record Hit(PlantSummaryDTO plant, float score) {
+    }
+
+    public static PlantSearchIndex build(List<Document> documents) {
+        PlantSummaryDTO[] docs = new PlantSummaryDTO[documents.size()];
+        TreeMap<String, Map<Integer, Float>> raw = new TreeMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            docs[i] = document.summary();
+            addTerms(raw, i, document.name(), NAME_WEIGHT);
+            addTerms(raw, i, document.description(), DESCRIPTION_WEIGHT);
+        }
+
+        String[] terms = raw.keySet().toArray(new String[0]);
+        int[][] postings = new int[terms.length][];
+        float[][] weights = new float[terms.length][];
+        Map<String, List<Integer>> deletionLists = new HashMap<>();
+        for (int t = 0; t < terms.length; t++) {
+            Map<Integer, Float> perDoc = raw.get(terms[t]);
+            int[] docIds = perDoc.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            float[] docWeights = new float[docIds.length];
+            for (int p = 0; p < docIds.length; p++) {
+                docWeights[p] = perDoc.get(docIds[p]);
+            }
+            postings[t] = docIds;
+            weights[t] = docWeights;
+
+            if (terms[t].length() >= MIN_TYPO_LENGTH) {
+                for (String variant : singleDeletions(terms[t])) {
+                    deletionLists.computeIfAbsent(variant, k -> new ArrayList<>()).add(t);
+                }
+            }
+        }
+
+        Map<String, int[]> deletions = new HashMap<>(deletionLists.size() * 2);
+        deletionLists.forEach((variant, ids) ->
+                deletions.put(variant, ids.stream().mapToInt(Integer::intValue).distinct().toArray()));
+        return new PlantSearchIndex(docs, terms, postings, weights, deletions);
+    }
+
+    public int size() {
+        return docs.length;
+    }
+
+    // Ranked documents that match every query token (exactly, by prefix, or with one typo)
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        float[] scores = new float[docs.length];
+        int[] matchedTokens = new int[docs.length];
+        float[] best = new float[docs.length];
+        for (String token : tokens) {
+            Arrays.fill(best, 0f);
+            collect(token, best);
+            for (int d = 0; d < docs.length; d++) {
+                if (best[d] > 0f) {
+                    scores[d] += best[d];
+                    matchedTokens[d]++;
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int d = 0; d < docs.length; d++) {
+            if (matchedTokens[d] == tokens.size()) {
+                hits.add(new Hit(docs[d], scores[d]));
+            }
+        }
+        hits.sort(Comparator.comparingDouble((Hit hit) -> -hit.score())
+                .thenComparing(hit -> hit.plant().getName()));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    // For every doc, the best weight any term matching this token gives it
+    private void collect(String token, float[] best) {
+        int exact = Arrays.binarySearch(terms, token);
+        if (exact >= 0) {
+            apply(exact, 1f, best);
+        }
+
+        int from = exact >= 0 ? exact + 1 : -exact - 1;
+        for (int t = from, n = 0; t < terms.length && n < MAX_PREFIX_EXPANSIONS && terms[t].startsWith(token); t++, n++) {
+            apply(t, PREFIX_FACTOR, best);
+        }
+
+        if (token.length() >= MIN_TYPO_LENGTH) {
+            for (int t : typoCandidates(token)) {
+                if (t != exact) {
+                    apply(t, TYPO_FACTOR, best);
+                }
+            }
+        }
+    }
+
+    private void apply(int term, float factor, float[] best) {
+        int[] docIds = postings[term];
+        float[] docWeights = weights[term];
+        for (int p = 0; p < docIds.length; p++) {
+            float score = docWeights[p] * factor;
+            if (score > best[docIds[p]]) {
+                best[docIds[p]] = score;
+            }
+        }
+    }
+
+    // Terms within one insertion, deletion, substitution or adjacent swap of the token
+    private Set<Integer> typoCandidates(String token) {
+        Set<Integer> candidates = new HashSet<>();
+        addAll(candidates, deletions.get(token));
+        for (String variant : singleDeletions(token)) {
+            int t = Arrays.binarySearch(terms, variant);
+            if (t >= 0) {
+                candidates.add(t);
+            }
+            addAll(candidates, deletions.get(variant));
+        }
+        candidates.removeIf(t -> !withinOneEdit(token, terms[t]));
+        return candidates;
+    }
+
+    private static void addAll(Set<Integer> target, int[] values) {
+        if (values != null) {
+            for (int value : values) {
+                target.add(value);
+            }
+        }
+    }
+
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) return true;
+            if (a.substring(i + 1).equals(b.substring(i + 1))) return true; // substitution
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.substring(i + 2).equals(b.substring(i + 2)); // adjacent swap
+        }
+        return la > lb ? a.substring(i + 1).equals(b.substring(i)) : a.substring(i).equals(b.substring(i + 1));
+    }
+
+    private static Set<String> singleDeletions(String term) {
+        Set<String> variants = new HashSet<>();
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    private static void addTerms(Map<String, Map<Integer, Float>> raw, int doc, String text, float weight) {
+        for (String token : tokenize(text)) {
+            raw.computeIfAbsent(token, k -> new HashMap<>()).merge(doc, weight, Float::sum);
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,84 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.plant.PlantDTO;
+import hu.plantplanet.dto.plant.PlantSummaryDTO;
+import hu.plantplanet.model.Plants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class PlantSearchService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private PlantsService plantsService;
+
+    // Full index over name + description, and a names-only index for autocomplete
+    private record Indexes(long version, PlantSearchIndex full, PlantSearchIndex names) {
+    }
+
+    private volatile Indexes indexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        currentIndexes();
+    }
+
+    // Ranked plants matching every word of the query
+    public List<PlantSummaryDTO> search(String query, Integer limit) {
+        return currentIndexes().full().search(query, clamp(limit)).stream()
+                .map(PlantSearchIndex.Hit::plant)
+                .toList();
+    }
+
+    // Name completions for a partially typed query
+    public List<PlantDTO> suggest(String query, Integer limit) {
+        return currentIndexes().names().search(query, clamp(limit)).stream()
+                .map(hit -> {
+                    PlantDTO dto = new PlantDTO();
+                    dto.setId(hit.plant().getId());
+                    dto.setName(hit.plant().getName());
+                    return dto;
+                })
+                .toList();
+    }
+
+    private int clamp(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    private Indexes currentIndexes() {
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        Indexes current = indexes;
+        if (current != null && current.version() == catalog.version()) {
+            return current;
+        }
+        synchronized (this) {
+            current = indexes;
+            if (current == null || current.version() != catalog.version()) {
+                current = rebuild(catalog.version(), catalog.plants());
+                indexes = current;
+            }
+            return current;
+        }
+    }
+
+    private Indexes rebuild(long version, List<Plants> plants) {
+        List<PlantSearchIndex.Document> full = plants.stream()
+                .map(plant -> new PlantSearchIndex.Document(plantsService.toSummary(plant), plant.getName(), plant.getDescription()))
+                .toList();
+        List<PlantSearchIndex.Document> names = full.stream()
+                .map(doc -> new PlantSearchIndex.Document(doc.summary(), doc.name(), null))
+                .toList();
+        return new Indexes(version, PlantSearchIndex.build(full), PlantSearchIndex.build(names));
+    }
+}
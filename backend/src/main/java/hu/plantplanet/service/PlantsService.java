@@ -1,27 +1,183 @@
 package hu.plantplanet.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.plantplanet.dto.plant.PlantBatchResponse;
+import hu.plantplanet.dto.plant.PlantPageResponse;
+import hu.plantplanet.dto.plant.PlantQueryRequest;
+import hu.plantplanet.dto.plant.PlantSort;
+import hu.plantplanet.dto.plant.PlantSummaryDTO;
 import hu.plantplanet.model.Plants;
+import hu.plantplanet.repository.PlantSpecifications;
 import hu.plantplanet.repository.PlantsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class PlantsService {
 
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_SIZE = 1000;
+
     @Autowired
     private PlantsRepository plantsRepository;
 
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ImageService imageService;
+
+    // Serialized summary list together with the catalog version it was built from
+    private record SummaryJson(long version, byte[] body) {
+    }
+
+    private volatile SummaryJson summaryJson;
+
     // Get all plants
     public List<Plants> getAllPlants() {
-        return plantsRepository.findAll();
+        return catalogSnapshot.plants();
     }
 
     // Get plant by ID
     public Optional<Plants> getPlantById(int id) {
-        return plantsRepository.findById(id);
+        return catalogSnapshot.plant(id);
+    }
+
+    // Get many plants by ID in one go, keeping the order of the request
+    public PlantBatchResponse getPlantsByIds(List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " ids can be requested at once");
+        }
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        List<Plants> plants = new ArrayList<>(ids.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            Optional<Plants> plant = id == null ? Optional.empty() : catalog.plant(id);
+            if (plant.isPresent()) {
+                plants.add(plant.get());
+            } else if (id != null) {
+                missing.add(id);
+            }
+        }
+        return new PlantBatchResponse(plants, missing);
+    }
+
+    public PlantSummaryDTO toSummary(Plants plant) {
+        return new PlantSummaryDTO(plant.getId(), plant.getName(), imageService.thumbnail(plant.getImages()), plant.getPrice());
     }
-}
 
+    // Listing summaries as ready-to-write JSON, rebuilt only when the catalog version changes
+    public byte[] getPlantSummariesJson() {
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        SummaryJson cached = summaryJson;
+        if (cached != null && cached.version() == catalog.version()) {
+            return cached.body();
+        }
+        synchronized (this) {
+            cached = summaryJson;
+            if (cached == null || cached.version() != catalog.version()) {
+                cached = new SummaryJson(catalog.version(), serializeSummaries(catalog.plants()));
+                summaryJson = cached;
+            }
+            return cached.body();
+        }
+    }
+
+    private byte[] serializeSummaries(List<Plants> plants) {
+        List<PlantSummaryDTO> summaries = plants.stream().map(this::toSummary).toList();
+        try {
+            return objectMapper.writeValueAsBytes(summaries);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize plant summaries", e);
+        }
+    }
+
+    // Filtered, sorted page of plants; the cursor points after the last row of the previous page
+    public PlantPageResponse<Plants> queryPlants(PlantQueryRequest request) {
+        PlantSort sort = PlantSort.fromKey(request.getSort());
+        int size = request.getSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+
+        List<Specification<Plants>> filters = new ArrayList<>();
+        filters.add(PlantSpecifications.nameContains(request.getQ()));
+        filters.add(PlantSpecifications.priceBetween(request.getMinPrice(), request.getMaxPrice()));
+        filters.add(PlantSpecifications.attributeIn("light", request.getLight()));
+        filters.add(PlantSpecifications.attributeIn("water", request.getWater()));
+        filters.add(PlantSpecifications.attributeIn("humidity", request.getHumidity()));
+        filters.add(PlantSpecifications.temperatureWithin(request.getMinTemp(), request.getMaxTemp()));
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            filters.add(afterCursor(sort, request.getCursor()));
+        }
+
+        // One extra row tells us whether there is a next page without a count query
+        List<Plants> rows = plantsRepository.findBy(Specification.allOf(filters),
+                query -> query.sortBy(orderFor(sort)).limit(size + 1).all());
+
+        if (rows.size() <= size) {
+            return new PlantPageResponse<>(rows, null);
+        }
+        List<Plants> page = rows.subList(0, size);
+        return new PlantPageResponse<>(new ArrayList<>(page), encodeCursor(sort, page.get(size - 1)));
+    }
+
+    private Sort orderFor(PlantSort sort) {
+        return switch (sort) {
+            case FEATURED -> Sort.by("id");
+            case PRICE_LOW_TO_HIGH -> Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"));
+            case PRICE_HIGH_TO_LOW -> Sort.by(Sort.Order.desc("price"), Sort.Order.asc("id"));
+            case NAME -> Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id"));
+        };
+    }
+
+    private String encodeCursor(PlantSort sort, Plants last) {
+        String value = switch (sort) {
+            case FEATURED -> "";
+            case PRICE_LOW_TO_HIGH, PRICE_HIGH_TO_LOW -> last.getPrice().toPlainString();
+            case NAME -> last.getName();
+        };
+        String raw = sort.getKey() + "|" + value + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Specification<Plants> afterCursor(PlantSort sort, String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int first = raw.indexOf('|');
+        int last = raw.lastIndexOf('|');
+        if (first < 0 || first == last || !raw.substring(0, first).equals(sort.getKey())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        String value = raw.substring(first + 1, last);
+        int lastId;
+        try {
+            lastId = Integer.parseInt(raw.substring(last + 1));
+            return switch (sort) {
+                case FEATURED -> PlantSpecifications.idAfter(lastId);
+                case PRICE_LOW_TO_HIGH -> PlantSpecifications.priceAfter(new BigDecimal(value), lastId, false);
+                case PRICE_HIGH_TO_LOW -> PlantSpecifications.priceAfter(new BigDecimal(value), lastId, true);
+                case NAME -> PlantSpecifications.nameAfter(value, lastId);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package hu.plantplanet.service;
 
+import hu.plantplanet.model.CareProfile;
 import hu.plantplanet.model.Order;
 import hu.plantplanet.model.OrderItem;
 import hu.plantplanet.model.Plants;
@@ -9,11 +10,10 @@ import hu.plantplanet.repository.OrderItemRepository;
 import hu.plantplanet.repository.PlantsRepository;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.Period;
 import java.util.List;
 
 @Service
@@ -26,18 +26,27 @@ public class RepotService {
     private OrderItemRepository orderItemsRepository;
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailService emailService;
 
-    // Run every hour to check for reminders
-    @Scheduled(cron = "0 0 * * * ?")
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CareProfileService careProfileService;
+
+    // Checks for due reminders on repot.reminders.cron; off ("-") unless configured
+    @Scheduled(cron = "${repot.reminders.cron:-}")
     public void checkAndSendRepots() {
         LocalDateTime now = LocalDateTime.now();
         List<Repot> reminders = RepotRepository.findBySentFalseAndRemindAtBefore(now);
 
+        // Queue the email and flag the reminder in one transaction, so a reminder is never queued twice
         for (Repot reminder : reminders) {
-            sendReminderEmail(reminder);
-            reminder.setSent(true);
-            RepotRepository.save(reminder);
+            transactionTemplate.executeWithoutResult(status -> {
+                emailService.sendRepotReminder(reminder.getEmail(), reminder.getPlantName());
+                reminder.setSent(true);
+                RepotRepository.save(reminder);
+            });
         }
     }
 
@@ -47,10 +56,7 @@ public class RepotService {
         for (OrderItem item : items) {
             Plants plant = item.getPlant(); // Use the Plant object from OrderItem
             if (plant != null && plant.getRePotting() != null) {
-                LocalDateTime remindAt = calculateRemindDate(
-                        order.getOrderDate(),
-                        plant.getRePotting()
-                );
+                LocalDateTime remindAt = calculateRemindDate(order.getOrderDate(), plant);
 
                 Repot reminder = new Repot();
                 reminder.setOrderItemId(item.getId()); // Updated field name
@@ -65,30 +71,11 @@ public class RepotService {
     }
 
 
-    private LocalDateTime calculateRemindDate(LocalDateTime orderDate, String repotPeriod) {
-        if (repotPeriod.contains("Year")) {
-            int years = Integer.parseInt(repotPeriod.split(" ")[0]);
-            return orderDate.plus(years, ChronoUnit.YEARS);
-        } else if (repotPeriod.contains("Month")) {
-            int months = Integer.parseInt(repotPeriod.split(" ")[0]);
-            return orderDate.plus(months, ChronoUnit.MONTHS);
-        }
+    private LocalDateTime calculateRemindDate(LocalDateTime orderDate, Plants plant) {
+        Period period = careProfileService.getProfile(plant.getId())
+                .map(CareProfile::repotting)
+                .orElseGet(() -> CareProfile.parseRepotting(plant.getRePotting()));
         // Default to 1 year if format is unrecognized
-        return orderDate.plusYears(1);
-    }
-
-    private void sendReminderEmail(Repot reminder) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(reminder.getEmail());
-        message.setSubject("Time to repot your " + reminder.getPlantName());
-        message.setText(String.format(
-                "Hello,\n\n" +
-                        "It's time to repot your %s that you purchased from us.\n\n" +
-                        "Happy gardening!\n" +
-                        "Your Plant Store Team",
-                reminder.getPlantName()
-        ));
-
-        mailSender.send(message);
+        return orderDate.plus(period != null ? period : Period.ofYears(1));
     }
 }
@@ -0,0 +1,140 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.stats.DailySalesDTO;
+import hu.plantplanet.dto.stats.ItemSalesDTO;
+import hu.plantplanet.dto.stats.SalesStatsResponse;
+import hu.plantplanet.model.Plants;
+import hu.plantplanet.model.Pots;
+import hu.plantplanet.model.SubscriptionPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Keeps sales_daily and sales_item_daily up to date and serves the admin sales stats from them.
+// Orders are folded in by a background job rather than inside placeOrder, so checkouts never
+// queue up on the lock of today's rollup row.
+@Service
+@Lazy(false)
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    public static final int DEFAULT_RANGE_DAYS = 30;
+    public static final int MAX_RANGE_DAYS = 366;
+
+    // One statement per chunk: flag a chunk of new orders and add them to both rollups. Pooled
+    // sequence ids do not commit in id order, so the rolled_up flag marks progress instead of an id.
+    private static final String ROLL_UP_CHUNK =
+            "WITH claimed AS (" +
+            "UPDATE orders SET rolled_up = TRUE WHERE order_id IN (" +
+            "SELECT order_id FROM orders WHERE rolled_up = FALSE ORDER BY order_id LIMIT :chunk FOR UPDATE SKIP LOCKED) " +
+            "RETURNING order_id, order_date, CAST(order_date AS DATE) AS day, total_price), " +
+            "daily AS (" +
+            "INSERT INTO sales_daily (day, orders, revenue) " +
+            "SELECT day, COUNT(*), SUM(total_price) FROM claimed GROUP BY day " +
+            "ON CONFLICT (day) DO UPDATE SET orders = sales_daily.orders + EXCLUDED.orders, " +
+            "revenue = sales_daily.revenue + EXCLUDED.revenue), " +
+            "items AS (" +
+            "INSERT INTO sales_item_daily (day, item_type, item_id, units) " +
+            "SELECT c.day, t.item_type, t.item_id, SUM(t.units) FROM claimed c " +
+            "JOIN order_item i ON i.order_id = c.order_id AND i.order_date = c.order_date " +
+            "CROSS JOIN LATERAL (VALUES ('PLANT', i.plant_id, i.amount), ('POT', i.pot_id, i.amount), " +
+            "('PLAN', i.subscription_plan_id, i.amount)) AS t(item_type, item_id, units) " +
+            "WHERE t.item_id IS NOT NULL GROUP BY c.day, t.item_type, t.item_id " +
+            "ON CONFLICT (day, item_type, item_id) DO UPDATE SET units = sales_item_daily.units + EXCLUDED.units) " +
+            "SELECT COUNT(*) FROM claimed";
+
+    private static final String DAILY_IN_RANGE =
+            "SELECT day, orders, revenue FROM sales_daily WHERE day BETWEEN :from AND :to ORDER BY day";
+
+    private static final String ITEMS_IN_RANGE =
+            "SELECT item_type, item_id, SUM(units) AS units FROM sales_item_daily " +
+            "WHERE day BETWEEN :from AND :to GROUP BY item_type, item_id ORDER BY units DESC, item_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CatalogSnapshot catalogSnapshot;
+    private final int chunkSize;
+
+    public SalesRollupService(NamedParameterJdbcTemplate jdbcTemplate,
+                              CatalogSnapshot catalogSnapshot,
+                              @Value("${sales.rollup.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogSnapshot = catalogSnapshot;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(fixedDelayString = "${sales.rollup.interval-ms:60000}")
+    public void rollUpNewOrders() {
+        int rolledUp = rollUp();
+        if (rolledUp > 0) {
+            logger.info("Rolled up {} new orders into the sales tables", rolledUp);
+        }
+    }
+
+    // Chunk by chunk until a chunk comes back short; returns the number of orders added
+    public int rollUp() {
+        MapSqlParameterSource params = new MapSqlParameterSource("chunk", chunkSize);
+        int total = 0;
+        int claimed;
+        do {
+            claimed = Optional.ofNullable(jdbcTemplate.queryForObject(ROLL_UP_CHUNK, params, Integer.class)).orElse(0);
+            total += claimed;
+        } while (claimed == chunkSize);
+        return total;
+    }
+
+    // Reads only rollup rows in the range, so the cost depends on the range, not on order history
+    public SalesStatsResponse getSalesStats(LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_RANGE_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("At most " + MAX_RANGE_DAYS + " days can be requested at once");
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("from", Date.valueOf(start))
+                .addValue("to", Date.valueOf(end));
+
+        List<DailySalesDTO> days = jdbcTemplate.query(DAILY_IN_RANGE, params, (rs, rowNum) -> new DailySalesDTO(
+                rs.getDate("day").toLocalDate(),
+                rs.getInt("orders"),
+                rs.getBigDecimal("revenue")));
+        int orders = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (DailySalesDTO day : days) {
+            orders += day.getOrders();
+            revenue = revenue.add(day.getRevenue());
+        }
+
+        CatalogSnapshot.Data catalog = catalogSnapshot.data();
+        List<ItemSalesDTO> plants = new ArrayList<>();
+        List<ItemSalesDTO> pots = new ArrayList<>();
+        List<ItemSalesDTO> plans = new ArrayList<>();
+        jdbcTemplate.query(ITEMS_IN_RANGE, params, rs -> {
+            long id = rs.getLong("item_id");
+            long units = rs.getLong("units");
+            switch (rs.getString("item_type")) {
+                case "PLANT" -> plants.add(new ItemSalesDTO(id, catalog.plant(id).map(Plants::getName).orElse(null), units));
+                case "POT" -> pots.add(new ItemSalesDTO(id, catalog.pot(id).map(Pots::getName).orElse(null), units));
+                case "PLAN" -> plans.add(new ItemSalesDTO(id, catalog.plan(id).map(SubscriptionPlan::getName).orElse(null), units));
+                default -> {
+                }
+            }
+        });
+        return new SalesStatsResponse(start, end, orders, revenue, days, plants, pots, plans);
+    }
+}
@@ -5,27 +5,26 @@ import hu.plantplanet.model.Plants;
 import hu.plantplanet.model.SubscriptionPlan;
 import hu.plantplanet.model.UserSubscription;
 import hu.plantplanet.model.Users;
-import hu.plantplanet.repository.PlantsRepository;
-import hu.plantplanet.repository.SubscriptionPlanRepository;
 import hu.plantplanet.repository.UserSubscriptionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 public class SubscriptionService {
     private final UserSubscriptionRepository userSubRepo;
-    private final PlantsRepository plantRepo;
     private final EmailService emailService;
-    private final SubscriptionPlanRepository subscriptionPlanRepo;
+    private final CatalogSnapshot catalogSnapshot;
+    private final PlantSamplerService plantSampler;
+    private final TransactionTemplate transactionTemplate;
 
-    // Runs daily at 9 AM
-    @Scheduled(cron = "0 0 9 * * ?")
+    // Runs on subscriptions.delivery.cron (e.g. daily at 9 AM: 0 0 9 * * ?); off ("-") unless configured
+    @Scheduled(cron = "${subscriptions.delivery.cron:-}")
     public void processSubscriptions() {
         List<UserSubscription> activeSubs = userSubRepo
                 .findByNextTriggerDateBeforeAndStatus(
@@ -33,7 +32,8 @@ public class SubscriptionService {
                         UserSubscription.SubscriptionStatus.ACTIVE
                 );
 
-        activeSubs.forEach(sub -> {
+        // Each subscription queues its email and moves its trigger date in its own transaction
+        activeSubs.forEach(sub -> transactionTemplate.executeWithoutResult(status -> {
             if (sub.getPlan().getType() == SubscriptionPlan.SubscriptionType.RANDOM_PLANT) {
                 Plants randomPlant = deliverRandomPlant(sub.getUser());
                 emailService.sendPlantDeliveryEmail(
@@ -52,26 +52,23 @@ public class SubscriptionService {
                     LocalDateTime.now().plusDays(sub.getIntervalDays())
             );
             userSubRepo.save(sub);
-        });
+        }));
     }
 
     private Plants deliverRandomPlant(Users user) {
-        List<Plants> allPlants = plantRepo.findAll();
-        if (allPlants.isEmpty()) {
-            throw new IllegalStateException("No plants available in database");
-        }
-        return allPlants.get(new Random().nextInt(allPlants.size()));
+        return plantSampler.randomPlant()
+                .orElseThrow(() -> new IllegalStateException("No plants available in database"));
     }
 
     public List<SubscriptionPlan> getAllPlans() {
-        return subscriptionPlanRepo.findAll();
+        return catalogSnapshot.plans();
     }
     public List<UserSubscription> getUserSubscriptions(Users user) {
         return userSubRepo.findByUser(user);
     }
 
     public void createSubscription(Users user, SubscribeRequest request) {
-        SubscriptionPlan plan = subscriptionPlanRepo.findById(request.getPlanId())
+        SubscriptionPlan plan = catalogSnapshot.plan(request.getPlanId())
                 .orElseThrow(() -> new RuntimeException("Subscription plan not found"));
 
         // Validate interval for RANDOM_PLANT plans
@@ -101,7 +98,7 @@ public class SubscriptionService {
     }
 
     public SubscriptionPlan getPlanById(Long id) {
-        return subscriptionPlanRepo.findById(id)
+        return catalogSnapshot.plan(id)
                 .orElseThrow(() -> new RuntimeException("Subscription plan not found"));
     }
 }
\ No newline at end of file
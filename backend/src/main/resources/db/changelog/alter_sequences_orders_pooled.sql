@@ -0,0 +1,4 @@
+-- Order ids are handed out by Hibernate's pooled optimizer in blocks of 50,
+-- so the sequences have to advance by the same step
+ALTER SEQUENCE orders_order_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_item_id_seq INCREMENT BY 50;
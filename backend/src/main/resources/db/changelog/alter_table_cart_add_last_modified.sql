@@ -0,0 +1,3 @@
+-- Last write to a cart line, used by the abandoned cart sweeper
+ALTER TABLE cart ADD COLUMN last_modified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+CREATE INDEX ix_cart_last_modified ON cart (last_modified);
@@ -0,0 +1,36 @@
+-- Merge duplicate lines before the unique indexes are created
+UPDATE cart c
+SET amount = d.total
+FROM (SELECT MIN(id) AS keep_id, SUM(amount) AS total
+      FROM cart
+      WHERE plant_id IS NOT NULL
+      GROUP BY user_id, plant_id, COALESCE(pot_id, 0)
+      HAVING COUNT(*) > 1) d
+WHERE c.id = d.keep_id;
+
+DELETE FROM cart c
+USING cart k
+WHERE c.plant_id IS NOT NULL
+  AND k.user_id = c.user_id
+  AND k.plant_id = c.plant_id
+  AND COALESCE(k.pot_id, 0) = COALESCE(c.pot_id, 0)
+  AND k.id < c.id;
+
+UPDATE cart c
+SET amount = d.total
+FROM (SELECT MIN(id) AS keep_id, SUM(amount) AS total
+      FROM cart
+      WHERE subscription_plan_id IS NOT NULL
+      GROUP BY user_id, subscription_plan_id
+      HAVING COUNT(*) > 1) d
+WHERE c.id = d.keep_id;
+
+DELETE FROM cart c
+USING cart k
+WHERE c.subscription_plan_id IS NOT NULL
+  AND k.user_id = c.user_id
+  AND k.subscription_plan_id = c.subscription_plan_id
+  AND k.id < c.id;
+
+CREATE UNIQUE INDEX ux_cart_user_plant_pot ON cart (user_id, plant_id, COALESCE(pot_id, 0)) WHERE plant_id IS NOT NULL;
+CREATE UNIQUE INDEX ux_cart_user_plan ON cart (user_id, subscription_plan_id) WHERE subscription_plan_id IS NOT NULL;
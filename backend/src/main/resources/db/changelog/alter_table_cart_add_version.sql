@@ -0,0 +1,2 @@
+-- Row version for optimistic concurrency; every write to a line bumps it
+ALTER TABLE cart ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Order history belongs to the user who placed the order, not to whoever owns the contact email
+-- typed in at checkout. Existing orders take the user of their items, which checkout copies from
+-- the cart owner; orders without one stay out of every history.
+ALTER TABLE orders ADD COLUMN user_id INT REFERENCES users (id) ON DELETE SET NULL;
+
+UPDATE orders o
+SET user_id = (SELECT MIN(i.user_id) FROM order_item i
+               WHERE i.order_id = o.order_id AND i.order_date = o.order_date);
+
+DROP INDEX ix_orders_email_date;
+CREATE INDEX ix_orders_user_date ON orders (user_id, order_date DESC, order_id DESC);
@@ -0,0 +1,13 @@
+ALTER TABLE plants
+    ADD COLUMN temperature_min SMALLINT,
+    ADD COLUMN temperature_max SMALLINT;
+
+UPDATE plants
+SET temperature_min = CAST((regexp_match(temperature, '(-?\d+)\s*°C\s*to\s*(-?\d+)\s*°C'))[1] AS SMALLINT),
+    temperature_max = CAST((regexp_match(temperature, '(-?\d+)\s*°C\s*to\s*(-?\d+)\s*°C'))[2] AS SMALLINT)
+WHERE temperature ~ '(-?\d+)\s*°C\s*to\s*(-?\d+)\s*°C';
+
+CREATE INDEX idx_plants_price_id ON plants (price, id);
+CREATE INDEX idx_plants_name_id ON plants (name, id);
+CREATE INDEX idx_plants_light ON plants (light);
+CREATE INDEX idx_plants_water ON plants (water);
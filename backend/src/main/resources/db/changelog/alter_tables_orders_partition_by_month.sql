@@ -0,0 +1,83 @@
+-- Range-partition orders and order_item by order_date. Everything ordered up to the end of the
+-- current month lands in one history partition; OrderPartitionService creates a partition per
+-- month from there on and moves partitions past the retention window to the archive schema.
+-- order_item carries its order's order_date so both tables share partition bounds, and every
+-- primary and foreign key includes the partition key, as Postgres requires.
+CREATE SCHEMA IF NOT EXISTS archive;
+
+-- order_item ids are only unique together with order_date from now on
+ALTER TABLE repot_reminders DROP CONSTRAINT IF EXISTS repot_reminders_order_item_id_fkey;
+
+ALTER TABLE order_item RENAME TO order_item_unpartitioned;
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+ALTER SEQUENCE orders_order_id_seq OWNED BY NONE;
+ALTER SEQUENCE order_item_id_seq OWNED BY NONE;
+DROP INDEX ix_orders_email_date;
+DROP INDEX ix_orders_date;
+DROP INDEX ix_orders_not_rolled_up;
+DROP INDEX ix_order_item_order_id;
+
+CREATE TABLE orders (
+                        order_id INT NOT NULL DEFAULT nextval('orders_order_id_seq'),
+                        name VARCHAR(255) NOT NULL,
+                        email VARCHAR(255) NOT NULL,
+                        address VARCHAR(255) NOT NULL,
+                        city VARCHAR(100) NOT NULL,
+                        zipcode VARCHAR(20) NOT NULL,
+                        phone_number VARCHAR(20) NOT NULL,
+                        payment_method VARCHAR(50) NOT NULL,
+                        total_price NUMERIC(10, 2) NOT NULL,
+                        order_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                        rolled_up BOOLEAN NOT NULL DEFAULT FALSE,
+                        CONSTRAINT pk_orders PRIMARY KEY (order_id, order_date)
+) PARTITION BY RANGE (order_date);
+ALTER SEQUENCE orders_order_id_seq OWNED BY orders.order_id;
+
+CREATE TABLE order_item (
+                            id INT NOT NULL DEFAULT nextval('order_item_id_seq'),
+                            order_id INT,
+                            order_date TIMESTAMP NOT NULL,
+                            user_id INT,
+                            plant_id INT,
+                            pot_id INT,
+                            subscription_plan_id INT,
+                            subscription BOOLEAN NOT NULL,
+                            amount INT NOT NULL,
+                            price NUMERIC NOT NULL,
+                            CONSTRAINT pk_order_item PRIMARY KEY (id, order_date),
+                            CONSTRAINT fk_order_item_order FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date),
+                            CONSTRAINT fk_order_item_user FOREIGN KEY (user_id) REFERENCES users (id),
+                            CONSTRAINT fk_order_item_plant FOREIGN KEY (plant_id) REFERENCES plants (id),
+                            CONSTRAINT fk_order_item_pot FOREIGN KEY (pot_id) REFERENCES pots (id),
+                            CONSTRAINT fk_order_item_subscription_plan FOREIGN KEY (subscription_plan_id) REFERENCES subscription_plans (id)
+) PARTITION BY RANGE (order_date);
+ALTER SEQUENCE order_item_id_seq OWNED BY order_item.id;
+
+-- Bounds are evaluated once, at migration time; the default partitions only catch rows outside
+-- every other partition and stay empty as long as the monthly partitions are created ahead of time
+CREATE TABLE orders_history PARTITION OF orders
+    FOR VALUES FROM (MINVALUE) TO (date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month');
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_item_history PARTITION OF order_item
+    FOR VALUES FROM (MINVALUE) TO (date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month');
+CREATE TABLE order_item_default PARTITION OF order_item DEFAULT;
+
+INSERT INTO orders (order_id, name, email, address, city, zipcode, phone_number, payment_method, total_price, order_date, rolled_up)
+SELECT order_id, name, email, address, city, zipcode, phone_number, payment_method, total_price,
+       COALESCE(order_date, LOCALTIMESTAMP), rolled_up
+FROM orders_unpartitioned;
+
+INSERT INTO order_item (id, order_id, order_date, user_id, plant_id, pot_id, subscription_plan_id, subscription, amount, price)
+SELECT i.id, i.order_id, COALESCE(o.order_date, LOCALTIMESTAMP), i.user_id, i.plant_id, i.pot_id,
+       i.subscription_plan_id, i.subscription, i.amount, i.price
+FROM order_item_unpartitioned i
+         LEFT JOIN orders_unpartitioned o ON o.order_id = i.order_id;
+
+DROP TABLE order_item_unpartitioned;
+DROP TABLE orders_unpartitioned;
+
+-- Created on the partitioned parents, so every partition gets them
+CREATE INDEX ix_orders_email_date ON orders (email, order_date DESC, order_id DESC);
+CREATE INDEX ix_orders_date ON orders (order_date DESC, order_id DESC);
+CREATE INDEX ix_orders_not_rolled_up ON orders (order_id) WHERE rolled_up = FALSE;
+CREATE INDEX ix_order_item_order_id ON order_item (order_id, order_date);
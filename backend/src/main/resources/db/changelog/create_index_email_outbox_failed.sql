@@ -0,0 +1,2 @@
+-- Lets the nightly purge find failed outbox rows past their retention without a full scan
+CREATE INDEX ix_email_outbox_failed_created_at ON email_outbox (created_at) WHERE status = 'FAILED';
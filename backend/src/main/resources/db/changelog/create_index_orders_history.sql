@@ -0,0 +1,4 @@
+-- Order history is paged newest first on (order_date, order_id), per customer and for admins
+CREATE INDEX ix_orders_email_date ON orders (email, order_date DESC, order_id DESC);
+CREATE INDEX ix_orders_date ON orders (order_date DESC, order_id DESC);
+CREATE INDEX ix_order_item_order_id ON order_item (order_id);
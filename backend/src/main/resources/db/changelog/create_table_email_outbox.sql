@@ -0,0 +1,17 @@
+-- Outbound email queued in the business transaction and delivered by EmailOutboxWorker.
+-- next_attempt_at doubles as the lease expiry while a row is SENDING.
+CREATE TABLE email_outbox (
+                              id BIGSERIAL PRIMARY KEY,
+                              recipient VARCHAR(255) NOT NULL,
+                              subject VARCHAR(255) NOT NULL,
+                              body TEXT NOT NULL,
+                              html BOOLEAN NOT NULL DEFAULT FALSE,
+                              status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+                              attempts INT NOT NULL DEFAULT 0,
+                              next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                              last_error VARCHAR(1000),
+                              created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                              sent_at TIMESTAMP
+);
+CREATE INDEX ix_email_outbox_due ON email_outbox (next_attempt_at) WHERE status IN ('PENDING', 'SENDING');
+CREATE INDEX ix_email_outbox_sent_at ON email_outbox (sent_at) WHERE status = 'SENT';
@@ -0,0 +1,9 @@
+-- Responses of POST /orders and /orders/checkout by client Idempotency-Key. The row is inserted in
+-- the order's own transaction, so a concurrent duplicate blocks on it until the first one commits.
+CREATE TABLE idempotency_key (
+                                 idempotency_key VARCHAR(300) PRIMARY KEY,
+                                 request_hash VARCHAR(64) NOT NULL,
+                                 response TEXT,
+                                 created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX ix_idempotency_key_created_at ON idempotency_key (created_at);
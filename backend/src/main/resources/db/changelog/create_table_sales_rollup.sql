@@ -0,0 +1,19 @@
+-- Sales dashboards read these instead of aggregating orders. SalesRollupService folds new orders in
+-- and flags them rolled_up, so every order is counted exactly once whatever order ids commit in.
+CREATE TABLE sales_daily (
+                             day DATE PRIMARY KEY,
+                             orders INT NOT NULL,
+                             revenue NUMERIC(14, 2) NOT NULL
+);
+
+-- Units sold per catalog item and day; item_type is PLANT, POT or PLAN
+CREATE TABLE sales_item_daily (
+                                  day DATE NOT NULL,
+                                  item_type VARCHAR(8) NOT NULL,
+                                  item_id INT NOT NULL,
+                                  units INT NOT NULL,
+                                  PRIMARY KEY (day, item_type, item_id)
+);
+
+ALTER TABLE orders ADD COLUMN rolled_up BOOLEAN NOT NULL DEFAULT FALSE;
+CREATE INDEX ix_orders_not_rolled_up ON orders (order_id) WHERE rolled_up = FALSE;
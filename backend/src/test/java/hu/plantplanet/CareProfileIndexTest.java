@@ -0,0 +1,50 @@
+package hu.plantplanet;
+
+import hu.plantplanet.model.CareLevel;
+import hu.plantplanet.model.CareProfile;
+import hu.plantplanet.service.CareProfileIndex;
+import org.junit.jupiter.api.Test;
+
+import java.time.Period;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CareProfileIndexTest {
+
+    private final CareProfileIndex index = new CareProfileIndex(List.of(
+            new CareProfile(1, CareLevel.HIGH, CareLevel.MEDIUM, CareLevel.MEDIUM, 18, 24, Period.ofYears(2)),
+            new CareProfile(2, CareLevel.MEDIUM, CareLevel.LOW, CareLevel.HIGH, 16, 32, Period.ofYears(3)),
+            new CareProfile(3, CareLevel.LOW, CareLevel.LOW, CareLevel.LOW, null, null, null)
+    ));
+
+    @Test
+    void parseRepotting_ShouldHandleCountsAndAdverbs() {
+        assertEquals(Period.ofYears(2), CareProfile.parseRepotting("2 Years"));
+        assertEquals(Period.ofYears(1), CareProfile.parseRepotting("Yearly"));
+        assertEquals(Period.ofMonths(1), CareProfile.parseRepotting("Monthly"));
+        assertNull(CareProfile.parseRepotting("Rarely"));
+    }
+
+    @Test
+    void matchingIds_ShouldAndAcrossAttributesAndOrWithinOne() {
+        // Act
+        List<Integer> ids = index.matchingIds(Set.of(CareLevel.MEDIUM, CareLevel.LOW), Set.of(CareLevel.LOW),
+                Set.of(), null, null);
+
+        // Assert
+        assertEquals(List.of(2, 3), ids);
+    }
+
+    @Test
+    void matchingIds_ShouldKeepPlantsWithoutTemperatureRange() {
+        assertEquals(List.of(1, 3), index.matchingIds(Set.of(), Set.of(), Set.of(), 17, 30));
+    }
+
+    @Test
+    void profileOf_ShouldReturnEmptyForUnknownPlant() {
+        assertTrue(index.profileOf(99).isEmpty());
+        assertEquals(CareLevel.HIGH, index.profileOf(1).orElseThrow().light());
+    }
+}
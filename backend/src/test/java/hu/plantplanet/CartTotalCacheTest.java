@@ -0,0 +1,82 @@
+package hu.plantplanet;
+
+import hu.plantplanet.service.CartTotalCache;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartTotalCacheTest {
+
+    private final CartTotalCache cache = new CartTotalCache(2);
+
+    @Test
+    void get_ShouldServeCachedTotalUntilInvalidated() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get(1, () -> { loads.incrementAndGet(); return BigDecimal.TEN; });
+        BigDecimal second = cache.get(1, () -> { loads.incrementAndGet(); return BigDecimal.ONE; });
+        cache.invalidate(1);
+        BigDecimal third = cache.get(1, () -> { loads.incrementAndGet(); return BigDecimal.ONE; });
+
+        // Assert
+        assertEquals(BigDecimal.TEN, second);
+        assertEquals(BigDecimal.ONE, third);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ShouldNotKeepTotalComputedBeforeAConcurrentInvalidation() {
+        // Arrange - the write commits while the total is being summed
+        BigDecimal stale = cache.get(1, () -> {
+            cache.invalidate(1);
+            return BigDecimal.TEN;
+        });
+
+        // Act
+        BigDecimal fresh = cache.get(1, () -> BigDecimal.ONE);
+
+        // Assert
+        assertEquals(BigDecimal.TEN, stale);
+        assertEquals(BigDecimal.ONE, fresh);
+    }
+
+    @Test
+    void get_ShouldKeepOnlyTheMostRecentlyUsedUsers() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, () -> { loads.incrementAndGet(); return BigDecimal.ONE; });
+        cache.get(2, () -> { loads.incrementAndGet(); return BigDecimal.ONE; });
+
+        // Act - user 3 pushes out user 1, the least recently used
+        cache.get(3, () -> { loads.incrementAndGet(); return BigDecimal.ONE; });
+        cache.get(2, () -> { loads.incrementAndGet(); return BigDecimal.TEN; });
+        BigDecimal reloaded = cache.get(1, () -> { loads.incrementAndGet(); return BigDecimal.TEN; });
+
+        // Assert
+        assertEquals(BigDecimal.TEN, reloaded);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void get_ShouldNotKeepTotalOfAUserEvictedDuringAnInvalidation() {
+        // Arrange - the user's invalidation is pushed out of the cache while the total is summed
+        BigDecimal stale = cache.get(1, () -> {
+            cache.invalidate(1);
+            cache.get(2, () -> BigDecimal.ONE);
+            cache.get(3, () -> BigDecimal.ONE);
+            return BigDecimal.TEN;
+        });
+
+        // Act
+        BigDecimal fresh = cache.get(1, () -> BigDecimal.ONE);
+
+        // Assert
+        assertEquals(BigDecimal.TEN, stale);
+        assertEquals(BigDecimal.ONE, fresh);
+    }
+}
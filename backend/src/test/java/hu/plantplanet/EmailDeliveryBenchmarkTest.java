@@ -0,0 +1,87 @@
+package hu.plantplanet;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import hu.plantplanet.service.EmailOutbox;
+import hu.plantplanet.service.EmailService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Messages per second of EmailService.deliver against a local GreenMail SMTP server, one message
+// per connection (the old behaviour) against batches of 20 per connection. The rates are logged.
+// Excluded from the default build; run with: mvn test -Dgroups=benchmark -DexcludedGroups=
+@Tag("benchmark")
+class EmailDeliveryBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDeliveryBenchmarkTest.class);
+
+    private static final int MESSAGES = 200;
+    private static final int WARM_UP_MESSAGES = 20;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Test
+    void deliver_ShouldSendEveryMessage_OnePerConnectionAndInBatches() throws Exception {
+        // Arrange
+        EmailService single = emailService(1);
+        EmailService batched = emailService(20);
+        single.deliver(emails(WARM_UP_MESSAGES));
+        batched.deliver(emails(WARM_UP_MESSAGES));
+        greenMail.purgeEmailFromAllMailboxes();
+
+        // Act
+        double singleRate = messagesPerSecond(single);
+        double batchedRate = messagesPerSecond(batched);
+
+        // Assert
+        assertEquals(2 * MESSAGES, greenMail.getReceivedMessages().length);
+        logger.info(String.format("deliver of %d messages: batch-size 1: %.1f msg/s, batch-size 20: %.1f msg/s (%.2fx)",
+                MESSAGES, singleRate, batchedRate, batchedRate / singleRate));
+    }
+
+    private static double messagesPerSecond(EmailService emailService) {
+        List<EmailOutbox.Email> emails = emails(MESSAGES);
+        long start = System.nanoTime();
+        Map<Long, Exception> failures = emailService.deliver(emails);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(failures.isEmpty(), () -> "Failed to deliver: " + failures);
+        return MESSAGES * 1_000_000_000.0 / elapsed;
+    }
+
+    private static EmailService emailService(int batchSize) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.from", "shop@plantplanet.test");
+        mailSender.setJavaMailProperties(properties);
+
+        EmailService emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "mailSender", mailSender);
+        ReflectionTestUtils.setField(emailService, "batchSize", batchSize);
+        ReflectionTestUtils.setField(emailService, "maxPerSecond", 0);
+        return emailService;
+    }
+
+    private static List<EmailOutbox.Email> emails(int count) {
+        List<EmailOutbox.Email> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            emails.add(new EmailOutbox.Email(i, "customer" + i + "@plantplanet.test", "Thank you for your order!",
+                    "<html><body><p>Order " + i + "</p></body></html>", true, 1));
+        }
+        return emails;
+    }
+}
@@ -0,0 +1,65 @@
+package hu.plantplanet;
+
+import hu.plantplanet.service.EmailOutbox;
+import hu.plantplanet.service.EmailService;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailServiceTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+
+        emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "mailSender", mailSender);
+        ReflectionTestUtils.setField(emailService, "batchSize", 20);
+        ReflectionTestUtils.setField(emailService, "maxPerSecond", 0);
+    }
+
+    @Test
+    void deliver_ShouldSendOneSmtpSessionPerBatch() {
+        // Arrange
+        List<Integer> sessions = new ArrayList<>();
+        doAnswer(invocation -> {
+            sessions.add(((MimeMessage[]) invocation.getRawArguments()[0]).length);
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        // Act
+        Map<Long, Exception> failures = emailService.deliver(emails(45));
+
+        // Assert
+        assertTrue(failures.isEmpty());
+        assertEquals(List.of(20, 20, 5), sessions);
+    }
+
+    private static List<EmailOutbox.Email> emails(int count) {
+        List<EmailOutbox.Email> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            emails.add(new EmailOutbox.Email(i, "customer" + i + "@plantplanet.test", "Thank you for your order!",
+                    "<html><body><p>Order " + i + "</p></body></html>", true, 1));
+        }
+        return emails;
+    }
+}
@@ -0,0 +1,193 @@
+package hu.plantplanet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.plantplanet.service.OrderIdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyServiceTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger orders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Every key is new to the database; the transaction just runs the callback
+        when(jdbcTemplate.update(anyString(), any(SqlParameterSource.class))).thenReturn(1);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void execute_WithSameKeyAndRequest_ShouldReplayFirstResponse() {
+        // Arrange
+        OrderIdempotencyService service = service(10, 24);
+
+        // Act
+        byte[] first = service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+        byte[] second = service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+
+        // Assert
+        assertArrayEquals(first, second);
+        assertEquals("{\"orderId\":1}", new String(second, StandardCharsets.UTF_8));
+        assertEquals(1, orders.get());
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void execute_WithoutKey_ShouldRunEveryTime() {
+        // Arrange
+        OrderIdempotencyService service = service(10, 24);
+
+        // Act
+        service.execute("orders", null, Map.of("total", 10), this::placeOrder);
+        service.execute("orders", " ", Map.of("total", 10), this::placeOrder);
+
+        // Assert
+        assertEquals(2, orders.get());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void execute_WithSameKeyAndDifferentRequest_ShouldReject() {
+        // Arrange
+        OrderIdempotencyService service = service(10, 24);
+        service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> service.execute("orders", "key-1", Map.of("total", 20), this::placeOrder));
+        assertEquals(1, orders.get());
+    }
+
+    @Test
+    void execute_WithSameKeyInAnotherScope_ShouldRunAgain() {
+        // Arrange
+        OrderIdempotencyService service = service(10, 24);
+
+        // Act
+        service.execute("checkout:1", "key-1", Map.of("total", 10), this::placeOrder);
+        service.execute("checkout:2", "key-1", Map.of("total", 10), this::placeOrder);
+
+        // Assert
+        assertEquals(2, orders.get());
+    }
+
+    @Test
+    void execute_WhenCachedResponseIsOlderThanTtl_ShouldGoBackToTheDatabase() throws InterruptedException {
+        // Arrange - a ttl of 0 hours expires every cached response as soon as the clock moves on
+        OrderIdempotencyService service = service(10, 0);
+        service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+        Thread.sleep(5);
+
+        // Act
+        service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+
+        // Assert
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+
+    @Test
+    void execute_WhenCacheIsFull_ShouldEvictLeastRecentlyUsedKey() {
+        // Arrange
+        OrderIdempotencyService service = service(2, 24);
+        service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+        service.execute("orders", "key-2", Map.of("total", 10), this::placeOrder);
+        service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+
+        // Act - key-3 pushes out key-2, which was used least recently
+        service.execute("orders", "key-3", Map.of("total", 10), this::placeOrder);
+        service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+        service.execute("orders", "key-2", Map.of("total", 10), this::placeOrder);
+
+        // Assert
+        verify(transactionTemplate, times(4)).execute(any());
+    }
+
+    @Test
+    void execute_WhenActionFails_ShouldCacheNothingAndAllowARetry() {
+        // Arrange
+        OrderIdempotencyService service = service(10, 24);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> service.execute("orders", "key-1", Map.of("total", 10), () -> {
+            throw new IllegalStateException("Payment declined");
+        }));
+        byte[] retried = service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder);
+
+        // Assert
+        assertEquals("{\"orderId\":1}", new String(retried, StandardCharsets.UTF_8));
+        assertEquals(1, orders.get());
+    }
+
+    @Test
+    void execute_WhenDuplicateArrivesWhileFirstIsRunning_ShouldWaitForItsResponse() throws Exception {
+        // Arrange
+        OrderIdempotencyService service = service(10, 24);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> first = executor.submit(() -> service.execute("orders", "key-1", Map.of("total", 10), () -> {
+                started.countDown();
+                awaitUninterruptibly(release);
+                return placeOrder();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Act
+            Future<byte[]> duplicate = executor.submit(() -> service.execute("orders", "key-1", Map.of("total", 10), this::placeOrder));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            assertArrayEquals(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, orders.get());
+            verify(transactionTemplate, times(1)).execute(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private OrderIdempotencyService service(int cacheSize, int ttlHours) {
+        return new OrderIdempotencyService(jdbcTemplate, transactionTemplate, objectMapper, cacheSize, ttlHours);
+    }
+
+    private Object placeOrder() {
+        return Map.of("orderId", orders.incrementAndGet());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package hu.plantplanet;
+
+import hu.plantplanet.dto.plant.PlantSummaryDTO;
+import hu.plantplanet.service.PlantSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlantSearchIndexTest {
+
+    private PlantSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = PlantSearchIndex.build(List.of(
+                document(1, "Money Tree Plant", "Glossy leaves from Central America"),
+                document(2, "Monstera Deliciosa", "Swiss cheese plant, loves humidity"),
+                document(3, "Phalaenopsis Orchid", "Moth orchid for a café décor")
+        ));
+    }
+
+    private PlantSearchIndex.Document document(int id, String name, String description) {
+        return new PlantSearchIndex.Document(new PlantSummaryDTO(id, name, null, BigDecimal.TEN), name, description);
+    }
+
+    private List<Integer> ids(String query) {
+        return index.search(query, 10).stream().map(hit -> hit.plant().getId()).toList();
+    }
+
+    @Test
+    void search_ByPrefix_ShouldMatchAllStartingTerms() {
+        assertEquals(List.of(1, 2), ids("mon"));
+    }
+
+    @Test
+    void search_WithOneTypo_ShouldStillMatch() {
+        assertEquals(List.of(2), ids("monstra"));
+        assertEquals(List.of(3), ids("orchdi"));
+    }
+
+    @Test
+    void search_ShouldIgnoreAccentsAndCase() {
+        assertEquals(List.of(3), ids("CAFE"));
+        assertEquals(List.of(3), ids("décor"));
+    }
+
+    @Test
+    void search_ShouldRankNameMatchesAboveDescriptionMatches() {
+        // Arrange: "plant" is in the name of 1 and only in the description of 2
+        // Act
+        List<Integer> result = ids("plant");
+
+        // Assert
+        assertEquals(List.of(1, 2), result);
+    }
+
+    @Test
+    void search_ShouldRequireEveryQueryWord() {
+        assertEquals(List.of(1), ids("tree money"));
+        assertTrue(ids("tree orchid").isEmpty());
+    }
+}
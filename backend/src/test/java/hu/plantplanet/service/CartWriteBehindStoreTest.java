@@ -0,0 +1,207 @@
+package hu.plantplanet.service;
+
+import hu.plantplanet.dto.cart.CartOperation;
+import hu.plantplanet.model.Cart;
+import hu.plantplanet.model.Plants;
+import hu.plantplanet.model.Pots;
+import hu.plantplanet.model.Users;
+import hu.plantplanet.repository.CartRepository;
+import hu.plantplanet.repository.UsersRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CartWriteBehindStoreTest {
+
+    private static final int USER_ID = 1;
+    private static final int MAX_FAILED_FLUSHES = 3;
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CartWriteBehindStore store;
+    private Users user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        store = new CartWriteBehindStore(cartRepository, usersRepository, jdbcTemplate, transactionManager,
+                100, 30, MAX_FAILED_FLUSHES);
+
+        user = new Users();
+        user.setId(USER_ID);
+        when(usersRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUserIdWithDetails(USER_ID)).thenReturn(new ArrayList<>());
+        when(jdbcTemplate.queryForList(anyString(), anyMap(), eq(Long.class))).thenReturn(List.of(100L, 101L, 102L));
+    }
+
+    @Test
+    void apply_WhenSameItemIsAddedTwice_ShouldMergeIntoOneLine() {
+        // Arrange
+        Plants plant = plant(10);
+        Pots pot = pot(1);
+
+        // Act
+        store.apply(USER_ID, List.of(add(plant, pot, 2)));
+        store.apply(USER_ID, List.of(add(plant, pot, 3)));
+
+        // Assert
+        List<Cart> items = store.items(USER_ID);
+        assertEquals(1, items.size());
+        assertEquals(5, items.get(0).getAmount());
+        assertEquals(1, items.get(0).getVersion());
+    }
+
+    @Test
+    void apply_WhenAmountIsNotPositive_ShouldRejectAndLeaveCartUntouched() {
+        // Arrange
+        store.apply(USER_ID, List.of(add(plant(10), pot(1), 2)));
+
+        // Act
+        assertThrows(IllegalArgumentException.class,
+                () -> store.apply(USER_ID, List.of(add(plant(11), pot(1), 1), add(plant(10), pot(1), 0))));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.apply(USER_ID, List.of(add(plant(10), pot(1), Integer.MAX_VALUE))));
+
+        // Assert
+        List<Cart> items = store.items(USER_ID);
+        assertEquals(1, items.size());
+        assertEquals(2, items.get(0).getAmount());
+    }
+
+    @Test
+    void flush_WhenCartIsDirty_ShouldWriteItOnce() {
+        // Arrange
+        store.apply(USER_ID, List.of(add(plant(10), pot(1), 2)));
+
+        // Act
+        store.flush(USER_ID);
+        store.flush(USER_ID);
+        store.flushDirty();
+
+        // Assert
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT INTO cart"), any(SqlParameterSource[].class));
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldThrowAndKeepTheCartForTheNextFlush() {
+        // Arrange
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+                .thenThrow(new DataIntegrityViolationException("connection lost"))
+                .thenReturn(new int[]{1});
+        store.apply(USER_ID, List.of(add(plant(10), pot(1), 2)));
+
+        // Act
+        assertThrows(RuntimeException.class, () -> store.flush(USER_ID));
+        store.flush(USER_ID);
+
+        // Assert
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO cart"), any(SqlParameterSource[].class));
+        assertEquals(1, store.items(USER_ID).size());
+    }
+
+    @Test
+    void flushDirty_WhenWriteFails_ShouldKeepRemovedLinesForTheNextFlush() {
+        // Arrange
+        when(cartRepository.findByUserIdWithDetails(USER_ID)).thenReturn(new ArrayList<>(List.of(line(7))));
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+                .thenThrow(new DataIntegrityViolationException("connection lost"))
+                .thenReturn(new int[]{1});
+        store.apply(USER_ID, List.of(new CartMutation(CartOperation.Type.REMOVE, 7, 0, null, null, null)));
+
+        // Act
+        store.flushDirty();
+        store.flushDirty();
+        store.flushDirty();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("DELETE FROM cart"), any(SqlParameterSource[].class));
+        assertTrue(store.items(USER_ID).isEmpty());
+    }
+
+    @Test
+    void flushDirty_WhenWriteKeepsFailing_ShouldGiveUpAndReloadFromDatabase() {
+        // Arrange
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+                .thenThrow(new DataIntegrityViolationException("violates check constraint"));
+        store.apply(USER_ID, List.of(add(plant(10), pot(1), 2)));
+
+        // Act
+        for (int i = 0; i < MAX_FAILED_FLUSHES + 2; i++) {
+            store.flushDirty();
+        }
+
+        // Assert
+        verify(jdbcTemplate, times(MAX_FAILED_FLUSHES)).batchUpdate(anyString(), any(SqlParameterSource[].class));
+        assertTrue(store.items(USER_ID).isEmpty());
+        verify(cartRepository, times(2)).findByUserIdWithDetails(USER_ID);
+    }
+
+    @Test
+    void discard_ShouldDropCartSoTheNextAccessReloadsIt() {
+        // Arrange
+        store.apply(USER_ID, List.of(add(plant(10), pot(1), 2)));
+        when(cartRepository.findByUserIdWithDetails(USER_ID)).thenReturn(new ArrayList<>(List.of(line(7))));
+
+        // Act
+        store.discard(USER_ID);
+
+        // Assert
+        List<Cart> items = store.items(USER_ID);
+        assertEquals(1, items.size());
+        assertEquals(7, items.get(0).getId());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(SqlParameterSource[].class));
+    }
+
+    private static CartMutation add(Plants plant, Pots pot, int amount) {
+        return new CartMutation(CartOperation.Type.ADD, null, amount, plant, pot, null);
+    }
+
+    private static Plants plant(int id) {
+        Plants plant = new Plants();
+        plant.setId(id);
+        plant.setPrice(BigDecimal.TEN);
+        return plant;
+    }
+
+    private static Pots pot(int id) {
+        Pots pot = new Pots();
+        pot.setId(id);
+        pot.setPrice(BigDecimal.ONE);
+        return pot;
+    }
+
+    private Cart line(int id) {
+        Cart line = new Cart();
+        line.setId(id);
+        line.setUser(user);
+        line.setPlant(plant(10));
+        line.setPot(pot(1));
+        line.setPrice(new BigDecimal("11"));
+        line.setAmount(1);
+        return line;
+    }
+}
@@ -40,6 +40,20 @@ export const getPlants = async () => {
   }
 };
 
+// Query the catalog with filters, sorting and cursor paging
+export const queryPlants = async (params = {}) => {
+  try {
+    const response = await axios.get(`${API_BASE_URL}/plants/query`, {
+      params,
+      paramsSerializer: { indexes: null },
+    });
+    return response.data;
+  } catch (error) {
+    console.error("Error querying products:", error);
+    return { items: [], nextCursor: null };
+  }
+};
+
 // Fetch a single product by ID
 export const getProductById = async (id) => {
   try {
@@ -51,35 +65,25 @@ export const getProductById = async (id) => {
   }
 };
 
-// Fetch a random plant
-export const getRandomPlants = async (count = 3, excludeId) => {
+// Fetch several products by ID in one request
+export const getPlantsByIds = async (ids) => {
   try {
-    const response = await axios.get(`${API_BASE_URL}/plants`);
-    let plants = response.data;
-
-    if (!Array.isArray(plants) || plants.length === 0) {
-      throw new Error("No plants available");
-    }
-
-    // Ensure excludeId is properly compared (convert to number if needed)
-    const filteredPlants = plants.filter((plant) => 
-      plant.id !== parseInt(excludeId)
-    );
-
-    // Handle case where there aren't enough plants
-    if (filteredPlants.length <= count) {
-      return filteredPlants; 
-    }
-
-    // Use Fisher-Yates (Knuth) shuffle for randomization
-    const shuffled = [...filteredPlants];
-    for (let i = shuffled.length - 1; i > 0; i--) {
-      const j = Math.floor(Math.random() * (i + 1));
-      [shuffled[i], shuffled[j]] = [shuffled[j], shuffled[i]];
-    }
+    const response = await axios.post(`${API_BASE_URL}/plants/batch`, ids);
+    return response.data;
+  } catch (error) {
+    console.error("Error fetching products:", error);
+    return { plants: [], missing: ids };
+  }
+};
 
-    // Return exactly 'count' number of plants
-    return shuffled.slice(0, count);
+// Fetch random plants (sampled on the server)
+export const getRandomPlants = async (count = 3, excludeId) => {
+  try {
+    const exclude = parseInt(excludeId);
+    const response = await axios.get(`${API_BASE_URL}/plants/random`, {
+      params: { count, exclude: Number.isNaN(exclude) ? undefined : exclude },
+    });
+    return Array.isArray(response.data) ? response.data : [];
   } catch (error) {
     console.error("Error fetching random plants:", error);
     return [];
@@ -99,14 +103,15 @@ export const getCartItems = async (userId) => {
   }
 };
 
-// Update a cart item (quantity)
-export const updateCartItem = async (userId, itemId, quantity) => {
+// Update a cart item (quantity); with a version the server rejects it (409) if the line changed meanwhile
+export const updateCartItem = async (userId, itemId, quantity, version) => {
   try {
     await axios.put(`${API_BASE_URL}/cart/update`, null, {
       params: {
         userId,
         plantId: itemId, 
         amount: quantity,
+        version,
       },
     });
   } catch (error) {
@@ -153,6 +158,17 @@ export const removeFromCart = async (cartItemId) => {
   }
 };
 
+// Apply several cart operations ({ op: "add" | "update" | "remove", ... }) in one request
+export const applyCartBatch = async (userId, operations) => {
+  try {
+    const response = await axios.post(`${API_BASE_URL}/cart/batch`, { userId, operations });
+    return response.data;
+  } catch (error) {
+    console.error("Error applying cart operations:", error);
+    throw error;
+  }
+};
+
 // Get the total price of the user's cart
 export const getTotalPrice = async (userId) => {
   try {
@@ -328,6 +344,29 @@ export const placeOrder = async (orderData) => {
   }
 };
 
+// Check out the user's cart; the server prices it and empties the cart
+// idempotencyKey lets a retried checkout return the first order instead of placing another one
+export const checkout = async (checkoutData, idempotencyKey) => {
+  const token = localStorage.getItem('authToken');
+
+  if (!token) {
+    throw new Error("No authentication token found");
+  }
+  try {
+    const response = await axios.post(`${API_BASE_URL}/orders/checkout`, checkoutData, {
+      headers: {
+        'Authorization': `Bearer ${token}`,
+        "Content-Type": "application/json",
+        ...(idempotencyKey ? { "Idempotency-Key": idempotencyKey } : {}),
+      },
+    });
+    return response.data;
+  } catch (error) {
+    console.error("Error during checkout:", error);
+    throw error;
+  }
+};
+
 // Fetch all subscription plans
 export const getSubscriptions = async () => {
   try {
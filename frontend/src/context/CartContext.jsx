@@ -1,5 +1,5 @@
 import React, { createContext, useContext, useState, useEffect } from "react";
-import { getCartItems, addToCart, removeFromCart, getTotalPrice } from "../api/api";
+import { getCartItems, addToCart, removeFromCart, getTotalPrice, applyCartBatch } from "../api/api";
 import { useUser } from "../context/UserContext";
 
 const CartContext = createContext();
@@ -77,9 +77,9 @@ const clearCart = async () => {
   }
 
   try {
-    // Remove each item in the cart
-    for (const item of cart) {
-      await removeFromCart(item.id);
+    // Remove every item in a single request
+    if (cart.length) {
+      await applyCartBatch(user.id, cart.map(item => ({ op: "remove", cartItemId: item.id })));
     }
     
     // Reset local state
@@ -12,6 +12,7 @@ import YardIcon from '@mui/icons-material/Yard';
 import {
   getCartItems,
   removeFromCart,
+  applyCartBatch,
   updateCartItem,
   getTotalPrice,
 } from "../api/api";
@@ -90,10 +91,8 @@ const Cart = () => {
     if (!user || !cartItems.length) return;
     
     try {
-      // Process each item one by one
-      for (const item of cartItems) {
-        await removeFromCart(item.id);
-      }
+      // Remove every item in a single request
+      await applyCartBatch(user.id, cartItems.map(item => ({ op: "remove", cartItemId: item.id })));
       
       // Clear local state
       setCartItems([]);
@@ -109,13 +108,14 @@ const Cart = () => {
     if (quantity < 1 || !user) return;
 
     try {
-      // Update server first
-      await updateCartItem(user.id, itemId, quantity);
+      // Update server first, guarded by the version we last saw
+      const current = cartItems.find(item => item.id === itemId);
+      await updateCartItem(user.id, itemId, quantity, current?.version);
       
       // Then update local state
       setCartItems(prevItems => 
         prevItems.map(item => 
-          item.id === itemId ? { ...item, amount: quantity } : item
+          item.id === itemId ? { ...item, amount: quantity, version: item.version + 1 } : item
         )
       );
       
@@ -124,6 +124,13 @@ const Cart = () => {
       setTotalPrice(updatedPrice || 0);
     } catch (err) {
       console.error("Update error:", err);
+      if (err.response?.status === 409) {
+        // Changed in another tab or device: show the current cart instead
+        setCartItems(await getCartItems(user.id));
+        setTotalPrice((await getTotalPrice(user.id)) || 0);
+        setError("This item was changed elsewhere, the cart has been refreshed.");
+        return;
+      }
       setError("An error occurred while updating the item quantity.");
     }
   };
@@ -137,24 +144,24 @@ const Cart = () => {
     try {
       if (item.subscription) {
         return {
-          name: item.subscriptionPlan?.name || "Subscription",
-          images: parseJsonSafely(item.subscriptionPlan?.images) || [],
-          description: item.subscriptionPlan?.description || "",
+          name: item.name || "Subscription",
+          images: item.image ? [item.image] : [],
+          description: "",
           type: "subscription"
         };
       } else {
         return {
-          plant: item.plant ? {
-            name: item.plant?.name || "Plant",
-            price: item.plant?.price || 0,
-            images: parseJsonSafely(item.plant?.images) || [],
-            description: item.plant?.description || "",
+          plant: item.plantId ? {
+            name: item.name || "Plant",
+            price: item.itemPrice || 0,
+            images: item.image ? [item.image] : [],
+            description: "",
             type: "plant"
           } : null,
-          pot: item.pot ? {
-            name: item.pot?.name || "Pot",
-            price: item.pot?.price || 0,
-            images: item.pot?.image || "",
+          pot: item.potId ? {
+            name: item.potName || "Pot",
+            price: item.potPrice || 0,
+            images: item.potImage || "",
             description: "",
             type: "pot"
           } : null,
@@ -167,19 +174,6 @@ const Cart = () => {
     }
   };
 
-  // Helper function to safely parse JSON
-  const parseJsonSafely = (jsonString) => {
-    if (!jsonString) return null;
-    if (typeof jsonString !== 'string') return jsonString;
-    
-    try {
-      return JSON.parse(jsonString);
-    } catch (e) {
-      console.error("JSON parse error:", e);
-      return jsonString;
-    }
-  };
-
   return (
     <Box
       sx={{
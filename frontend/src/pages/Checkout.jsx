@@ -1,7 +1,7 @@
-import React, { useState, useEffect } from "react";
+import React, { useState, useEffect, useRef } from "react";
 import { Box, Typography, TextField, Button, Select, MenuItem, InputLabel, FormControl, CircularProgress, Alert, InputAdornment, Stack, Chip } from "@mui/material";
 import { useCart } from "../context/CartContext";
-import { placeOrder, subscribeUser } from "../api/api.js"; 
+import { checkout, subscribeUser } from "../api/api.js"; 
 import AccountCircleIcon from "@mui/icons-material/AccountCircle";
 import HomeIcon from "@mui/icons-material/Home";
 import LocationCityIcon from "@mui/icons-material/LocationCity";
@@ -12,11 +12,10 @@ import ShoppingCartCheckoutIcon from "@mui/icons-material/ShoppingCartCheckout";
 import EmailIcon from "@mui/icons-material/Email";
 import LocalFloristIcon from '@mui/icons-material/LocalFlorist';
 import YardIcon from '@mui/icons-material/Yard';
-import { useUser } from "../context/UserContext";  
 import AutorenewIcon from '@mui/icons-material/Autorenew';
 
 const Checkout = () => {
-  const { cart, totalPrice, clearCart } = useCart(); 
+  const { cart, totalPrice, refreshCart } = useCart(); 
 
   const [name, setName] = useState("");
   const [email, setEmail] = useState("");
@@ -28,10 +27,10 @@ const Checkout = () => {
 
   const [loading, setLoading] = useState(true);
   const [isSubmitting, setIsSubmitting] = useState(false);
+  // Same key while the same order is resubmitted, so a retry after a timeout cannot order twice
+  const idempotency = useRef({ payload: null, key: null });
   const [error, setError] = useState(null);
   const [success, setSuccess] = useState(false);
-  const { user } = useUser(); 
-  const userId = user.id;
 
   // Validation functions
   const isTextOnly = (value) => /^[a-zA-ZáéíóöőúüűÁÉÍÓÖŐÚÜŰ\s]*$/.test(value);
@@ -48,22 +47,23 @@ const Checkout = () => {
   const getItemDetails = (item) => {
     if (item.subscription) {
       return {
-        name: item.subscriptionPlan.name,
-        images: JSON.parse(item.subscriptionPlan.images),
+        name: item.name,
+        images: item.image ? [item.image] : [],
         price: item.price,
         isSubscription: true,
-        subscriptionPlanId: item.subscriptionPlan.id // Added to track the plan ID
+        subscriptionPlanId: item.subscriptionPlanId // Added to track the plan ID
       };
     } else {
+      const pot = item.potId ? { id: item.potId, name: item.potName, price: item.potPrice } : null;
       return {
-        name: item.plant.name,
-        images: JSON.parse(item.plant.images),
-        price: item.plant.price,
+        name: item.name,
+        images: item.image ? [item.image] : [],
+        price: item.itemPrice,
         isSubscription: false,
-        pot:item.pot,
-        potName:item.pot.name,
-        potPrice:item.pot.price,
-        potImage:item.pot.image
+        pot,
+        potName: item.potName,
+        potPrice: item.potPrice,
+        potImage: item.potImage
       };
     }
   };
@@ -118,61 +118,34 @@ const Checkout = () => {
       return;
     }
 
-    // Prepare order data
-    const orderData = {
+    // The server builds and prices the order from the cart
+    const checkoutData = {
       name,
       email,
       address,
       city,
       zipcode,
       phoneNumber,
-      paymentMethod,
-      totalPrice,
-      orderDate: new Date().toISOString(),
-      orderItems: cart.map(item => {
-          const baseItem = {
-              amount: item.amount,
-              price: item.price,
-              subscription: item.subscription,
-              userId
-          };
-
-          if (item.subscription) {
-              return {
-                  ...baseItem,
-                  subscriptionPlanId: item.subscriptionPlan.id,
-                  subscriptionPlanName: item.subscriptionPlan.name,
-                  plantId: null,
-                  plantName: null,
-                  potId: null,
-                  potName: null
-              };
-          } else {
-              return {
-                  ...baseItem,
-                  subscriptionPlanId: null,
-                  subscriptionPlanName: null,
-                  plantId: item.plant.id,
-                  plantName: item.plant.name,
-                  potId: item.pot?.id || null,
-                  potName: item.pot?.name || null
-              };
-          }
-      })
-  };
+      paymentMethod
+    };
 
     try {
       setIsSubmitting(true);
       setError(null);
 
       // Place the order
-      const response = await placeOrder(orderData);
+      const payload = JSON.stringify(checkoutData);
+      if (idempotency.current.payload !== payload) {
+        idempotency.current = { payload, key: crypto.randomUUID() };
+      }
+      const response = await checkout(checkoutData, idempotency.current.key);
       
       // Handle subscriptions for subscription items in the cart
       await handleSubscriptions(cart);
       
-      // Clear cart and show success message
-      await clearCart();
+      // The server emptied the cart; reload it and show success message
+      await refreshCart();
+      idempotency.current = { payload: null, key: null };
       setSuccess(true);
       
     } catch (error) {
@@ -59,7 +59,7 @@ const Home = () => {
   const { user } = useUser(); 
 
   const isPlantInCart = (plantId) => {
-    return cartItems.some(item => item.plant?.id === plantId);
+    return cartItems.some(item => item.plantId === plantId);
   };
 
   // Filter states
@@ -84,8 +84,8 @@ const PlantDetail = () => {
           const cartItems = await getCartItems(user.id);
           // Check if this specific plant and pot combination exists in the cart
           const plantInCart = cartItems.some(item => 
-            item.plant.id === plant.id && 
-            (selectedPot ? item.pot?.id === selectedPot : !item.pot)
+            item.plantId === plant.id && 
+            (selectedPot ? item.potId === selectedPot : !item.potId)
           );
           setInCart(plantInCart);
         } catch (err) {
@@ -138,7 +138,7 @@ const PlantDetail = () => {
           
           relatedPlants.forEach(relatedPlant => {
             // For each related plant, check if it's in the cart
-            const isInCart = cartItems.some(item => item.plant.id === relatedPlant.id);
+            const isInCart = cartItems.some(item => item.plantId === relatedPlant.id);
             inCartStatus[relatedPlant.id] = isInCart;
           });
           
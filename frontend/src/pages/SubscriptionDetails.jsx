@@ -103,7 +103,7 @@ const SubscriptionDetails = () => {
             
             const planInCart = cartItems.some(item => 
               item.subscription && 
-              item.subscriptionPlan?.id === parseInt(id)
+              item.subscriptionPlanId === parseInt(id)
             );
             
             setInCart(planInCart);
@@ -162,7 +162,7 @@ const SubscriptionDetails = () => {
               
               relatedPlants.forEach(relatedPlant => {
                 // For each related plant, check if it's in the cart
-                const isInCart = cartItems.some(item => item.plant.id === relatedPlant.id);
+                const isInCart = cartItems.some(item => item.plantId === relatedPlant.id);
                 inCartStatus[relatedPlant.id] = isInCart;
               });
               
@@ -70,7 +70,7 @@ const Subscriptions = () => {
   const isPlanInCart = (planId) => {
     return cartItems.some(item => 
       item.subscription && 
-      item.subscriptionPlan?.id === planId
+      item.subscriptionPlanId === planId
     );
   };
 